@@ -0,0 +1,9 @@
+#!/bin/sh
+# Records the baseline later changes are compared against.
+# Builds the benchmark module and runs every benchmark from the repository root, where res/ is found,
+# writing the results with allocation rates to benchmark/baseline.json.
+# Arguments are passed on to JMH, e.g. a benchmark name to record only that one.
+set -e
+cd "$(dirname "$0")/.."
+mvn -B -q -f benchmark/pom.xml package
+java -jar benchmark/target/benchmarks.jar -prof gc -rf json -rff benchmark/baseline.json "$@"
@@ -0,0 +1,61 @@
+package shadowdimension;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one player step through Entity.moveAndCheckCollision,
+ * and one diagonal step as two calls of it or one call of Entity.moveInDirections.
+ * The player walks back and forth so it stays in the same neighbourhood.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CollisionBenchmark {
+    @Param({"60", "10000", "100000", "1000000"})
+    public int objectCount;
+
+    private World world;
+    private Player player;
+    private int direction = ShadowDimension.RIGHT;
+    private int verticalDirection = ShadowDimension.DOWN;
+
+    @Setup(Level.Trial)
+    public void buildWorld() throws IOException {
+        world = SyntheticLevel.build(objectCount);
+        player = world.getPlayer();
+    }
+
+    @Benchmark
+    public double moveAndCheckCollision() {
+        direction = (direction == ShadowDimension.RIGHT) ? ShadowDimension.LEFT : ShadowDimension.RIGHT;
+        player.moveAndCheckCollision(direction, world.getObjectIndex(), world.getWorldBounds(), 0);
+        return player.getXCoordinate();
+    }
+
+    @Benchmark
+    public double diagonalAsTwoMoves() {
+        turnAround();
+        player.moveAndCheckCollision(verticalDirection, world.getObjectIndex(), world.getWorldBounds(), 0);
+        player.moveAndCheckCollision(direction, world.getObjectIndex(), world.getWorldBounds(), 0);
+        return player.getXCoordinate() + player.getYCoordinate();
+    }
+
+    @Benchmark
+    public double diagonalInOnePass() {
+        turnAround();
+        player.moveInDirections((1 << verticalDirection) | (1 << direction),
+                world.getObjectIndex(), world.getWorldBounds(), 0);
+        return player.getXCoordinate() + player.getYCoordinate();
+    }
+
+    private void turnAround() {
+        direction = (direction == ShadowDimension.RIGHT) ? ShadowDimension.LEFT : ShadowDimension.RIGHT;
+        verticalDirection = (verticalDirection == ShadowDimension.DOWN) ? ShadowDimension.UP : ShadowDimension.DOWN;
+    }
+}
@@ -0,0 +1,46 @@
+package shadowdimension;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures detecting the player once per tick: Enemy.detectPlayer run for every enemy,
+ * against World.detectPlayer finding the enemies near the player with one index query.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EnemyDetectionBenchmark {
+    @Param({"60", "10000", "100000", "1000000"})
+    public int objectCount;
+
+    private final ArrayList<Enemy> enemies = new ArrayList<>();
+    private World world;
+    private Player player;
+
+    @Setup(Level.Trial)
+    public void buildWorld() throws IOException {
+        world = SyntheticLevel.build(objectCount);
+        player = world.getPlayer();
+        enemies.addAll(world.getEnemies());
+    }
+
+    @Benchmark
+    public Player detectPlayerEachEnemy() {
+        for (Enemy enemy : enemies)
+            enemy.detectPlayer(player);
+        return player;
+    }
+
+    @Benchmark
+    public World detectPlayerBatched() {
+        world.detectPlayer();
+        return world;
+    }
+}
@@ -0,0 +1,45 @@
+package shadowdimension;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a level from its file through the World constructor,
+ * either from the .csv level with LevelReader or from the compiled level with BinaryLevelReader.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LevelLoadBenchmark {
+    @Param({"60", "10000", "100000", "1000000"})
+    public int objectCount;
+
+    @Param({"csv", "sdlvl"})
+    public String format;
+
+    private String levelFilepath;
+
+    @Setup(Level.Trial)
+    public void writeLevel() throws IOException {
+        Path csvFile = SyntheticLevel.write(objectCount);
+        levelFilepath = csvFile.toString();
+        if (format.equals("sdlvl")) {
+            String compiledFilepath = BinaryLevelReader.compiledPath(levelFilepath);
+            LevelCompiler.compile(levelFilepath, compiledFilepath, true);
+            new File(compiledFilepath).deleteOnExit();
+            levelFilepath = compiledFilepath;
+        }
+    }
+
+    @Benchmark
+    public World loadLevel() throws IOException {
+        return new World(0, levelFilepath);
+    }
+}
@@ -0,0 +1,39 @@
+package shadowdimension;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Player.updatePlayer while the player is attacking.
+ * No time passes between updates, so the attack never ends.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PlayerAttackBenchmark {
+    @Param({"60", "10000", "100000", "1000000"})
+    public int objectCount;
+
+    private World world;
+    private Player player;
+    private SpatialIndex objects;
+
+    @Setup(Level.Trial)
+    public void buildWorld() throws IOException {
+        world = SyntheticLevel.build(objectCount);
+        player = world.getPlayer();
+        objects = world.getObjectIndex();
+        player.startAttack();
+    }
+
+    @Benchmark
+    public Player updatePlayerAttacking() {
+        player.updatePlayer(0, objects);
+        return player;
+    }
+}
@@ -0,0 +1,100 @@
+package shadowdimension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds large levels for the benchmarks by tiling the entries of the shipped level0.csv
+ * across a square grid of window-sized copies.
+ * The player starts in the first copy and the world bounds cover every copy.
+ */
+public class SyntheticLevel {
+    private final static String TEMPLATE_CSV = "res/level0.csv";
+    private final static int TILE_WIDTH = 1024;
+    private final static int TILE_HEIGHT = 768;
+    private final static int PLAYER_WIDTH = 40;
+    private final static int PLAYER_HEIGHT = 59;
+    //Every run builds the same enemies
+    private final static long SEED = 20003;
+
+    private SyntheticLevel() {}
+
+    /**
+     * Creates the entries of a level.
+     * @param objectCount
+     * The number of walls, trees, sinkholes and enemies in the level.
+     * @return
+     * The lines of the level, in the format read by World.
+     */
+    public static String[] entries(int objectCount) throws IOException {
+        List<String> template = Files.readAllLines(Paths.get(TEMPLATE_CSV));
+        String playerEntry = null;
+        List<String[]> objectEntries = new ArrayList<>();
+        for (String line : template) {
+            String[] entry = line.split(",");
+            if (entry[0].equals(Player.PLAYER_NAME))
+                playerEntry = line;
+            else if (!entry[0].equals("TopLeft") && !entry[0].equals("BottomRight"))
+                objectEntries.add(entry);
+        }
+
+        int tileCount = (objectCount + objectEntries.size() - 1) / objectEntries.size();
+        int tilesPerRow = (int) Math.ceil(Math.sqrt(tileCount));
+        int tileRows = (tileCount + tilesPerRow - 1) / tilesPerRow;
+
+        String[] entries = new String[objectCount + 3];
+        entries[0] = playerEntry;
+        for (int i = 0; i < objectCount; i++) {
+            String[] entry = objectEntries.get(i % objectEntries.size());
+            int tile = i / objectEntries.size();
+            int x = Integer.parseInt(entry[1]) + (tile % tilesPerRow) * TILE_WIDTH;
+            int y = Integer.parseInt(entry[2]) + (tile / tilesPerRow) * TILE_HEIGHT;
+            entries[i + 1] = entry[0] + "," + x + "," + y;
+        }
+        entries[objectCount + 1] = "TopLeft,0,0";
+        entries[objectCount + 2] = "BottomRight," + (tilesPerRow * TILE_WIDTH - PLAYER_WIDTH) + "," +
+                (tileRows * TILE_HEIGHT - PLAYER_HEIGHT);
+
+        return entries;
+    }
+
+    /**
+     * Writes a level to a temporary file that is deleted when the benchmark exits.
+     * @param objectCount
+     * The number of walls, trees, sinkholes and enemies in the level.
+     * @return
+     * The path to the file.
+     */
+    public static Path write(int objectCount) throws IOException {
+        Path csvFile = Files.createTempFile("synthetic-level-" + objectCount + "-", ".csv");
+        csvFile.toFile().deleteOnExit();
+        Files.write(csvFile, List.of(entries(objectCount)));
+        return csvFile;
+    }
+
+    /**
+     * Builds a world from a synthetic level, always with the same seed.
+     * @param objectCount
+     * The number of walls, trees, sinkholes and enemies in the level.
+     * @return
+     * The world, ready to be updated.
+     */
+    public static World build(int objectCount) throws IOException {
+        return build(write(objectCount));
+    }
+
+    /**
+     * Builds a world from a synthetic level written earlier, always with the same seed.
+     * @param csvFile
+     * The path to the level, as given by write.
+     * @return
+     * The world, ready to be updated.
+     */
+    public static World build(Path csvFile) throws IOException {
+        return new World(0, csvFile.toString(), SEED);
+    }
+}
@@ -0,0 +1,56 @@
+package shadowdimension;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full World.updateWorld tick with the player standing still.
+ * Every invocation steps the same stretch of ticks from the state the world was built in,
+ * restored from a snapshot before it is timed, so the enemies' positions and the player's health
+ * are the same in every iteration however many ticks were run before it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WorldTickBenchmark {
+    private final static double TICK_MS = 1000/60.0;
+    //Two seconds of the game, short enough that the player standing still never loses
+    private final static int TICKS = 120;
+
+    @Param({"60", "10000", "100000", "1000000"})
+    public int objectCount;
+
+    private World world;
+    private ByteBuffer initialState;
+
+    @Setup(Level.Trial)
+    public void buildWorld() throws IOException {
+        world = SyntheticLevel.build(objectCount);
+        initialState = world.snapshot();
+    }
+
+    @Setup(Level.Invocation)
+    public void restoreWorld() {
+        world.restore(initialState.rewind());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TICKS)
+    public World updateWorld() {
+        for (int tick = 0; tick < TICKS; tick++)
+            world.updateWorld(TICK_MS);
+        return world;
+    }
+
+    @TearDown(Level.Trial)
+    public void checkPlayer() {
+        if (world.hasLost())
+            throw new IllegalStateException("The player lost during the measured ticks");
+    }
+}
@@ -0,0 +1,278 @@
+import bagel.DrawOptions;
+import bagel.Image;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the game's images in one place.
+ * Image files are decoded on worker threads while the start screen shows, and the small ones are packed
+ * into a single atlas image, so every sprite is drawn from one texture instead of one texture each.
+ * Bagel can only create textures on the thread that draws the game and only from files,
+ * so the atlas is written to a temporary file on a worker and loaded by update once it is ready.
+ * Until then sprites are loaded and drawn one by one as before.
+ * Images used by a single level are reference counted, and their decoded pixels are dropped once no level uses them.
+ * Bagel cannot free a texture, so a loaded image stays in memory for as long as a sprite still holds it.
+ * Apart from preload, getDecoded and retain, it is only meant to be used on the thread that draws the game.
+ */
+public class AssetManager {
+    /**
+     * Images no wider and no taller than this are packed into the atlas.
+     */
+    public final static int MAX_ATLAS_SPRITE_SIZE = 256;
+
+    private final static int ATLAS_WIDTH = 1024;
+    //Empty pixels between sprites, so a sprite never picks up the edge of its neighbour
+    private final static int ATLAS_PADDING = 2;
+    private final static String ATLAS_PREFIX = "shadow-dimension-atlas";
+    private final static String ATLAS_FORMAT = "png";
+    private final static int DECODE_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    private final static ConcurrentHashMap<String, Future<BufferedImage>> DECODED = new ConcurrentHashMap<>();
+    private final static HashMap<String, Image> IMAGES = new HashMap<>();
+    private final static HashMap<String, Integer> REFERENCES = new HashMap<>();
+
+    //The place of each sprite in the atlas as x, y, width and height,
+    //and the options that draw it from there turned by each number of quarter turns
+    private final static HashMap<String, double[]> ATLAS_SECTIONS = new HashMap<>();
+    private final static HashMap<String, DrawOptions[]> ATLAS_OPTIONS = new HashMap<>();
+    private static Future<File> atlasFile;
+    private static Image atlas;
+
+    private static ExecutorService workers;
+
+    private AssetManager() {}
+
+    /**
+     * Starts decoding image files on worker threads and packing the small ones into the atlas.
+     * Returns straight away. Files already being decoded are not decoded again.
+     * @param filepaths
+     * The paths to the image files.
+     */
+    public static synchronized void preload(Collection<String> filepaths) {
+        if (workers == null)
+            workers = Executors.newFixedThreadPool(DECODE_THREADS, task -> {
+                Thread thread = new Thread(task, "asset-decoder");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        ArrayList<String> atlasFilepaths = new ArrayList<>();
+        for (String filepath : filepaths) {
+            DECODED.computeIfAbsent(filepath, path -> workers.submit(() -> decode(path)));
+            if (atlasFile == null && fitsAtlas(filepath))
+                atlasFilepaths.add(filepath);
+        }
+
+        if (atlasFile == null && !atlasFilepaths.isEmpty()) {
+            //Tallest first, so each row of the atlas wastes little height
+            atlasFilepaths.sort(Comparator.comparingDouble(AssetManager::spriteHeight).reversed()
+                    .thenComparing(Comparator.naturalOrder()));
+            atlasFile = workers.submit(() -> composeAtlas(atlasFilepaths));
+        }
+    }
+
+    /**
+     * Loads the atlas once the workers have written it. Called every frame, and returns straight away
+     * if the atlas is not ready yet or is already loaded.
+     * If the atlas cannot be built, sprites keep being drawn one by one.
+     */
+    public static void update() {
+        if (atlas != null || atlasFile == null || !atlasFile.isDone())
+            return;
+
+        try {
+            atlas = new Image(atlasFile.get().getPath());
+            for (String filepath : ATLAS_SECTIONS.keySet())
+                IMAGES.remove(filepath);
+        } catch (InterruptedException | ExecutionException e) {
+            System.err.println("Could not build the sprite atlas: " + e);
+        }
+        atlasFile = null;
+    }
+
+    /**
+     * Draws a sprite from the atlas, centred on a point.
+     * @param filepath
+     * The path to the sprite's image file.
+     * @param xCoordinate
+     * X coordinate of the centre.
+     * @param yCoordinate
+     * Y coordinate of the centre.
+     * @param rotation
+     * The number of quarter turns the sprite is rotated by, from 0 to Sprite.ROTATION_COUNT - 1.
+     * @return
+     * Whether the sprite was drawn, which it is not if the atlas is not loaded or does not hold the sprite.
+     */
+    public static boolean drawFromAtlas(String filepath, double xCoordinate, double yCoordinate, int rotation) {
+        if (atlas == null)
+            return false;
+        DrawOptions[] rotations = ATLAS_OPTIONS.get(filepath);
+        if (rotations == null)
+            return false;
+
+        atlas.draw(xCoordinate, yCoordinate, rotations[rotation]);
+        return true;
+    }
+
+    /**
+     * Gets the image of a file, loading it the first time it is asked for.
+     * @param filepath
+     * The path to the image file.
+     * @return
+     * The image shared by every caller asking for the same file.
+     */
+    public static Image getImage(String filepath) {
+        Image image = IMAGES.get(filepath);
+        if (image == null) {
+            image = new Image(filepath);
+            IMAGES.put(filepath, image);
+        }
+        return image;
+    }
+
+    /**
+     * Gets the decoded pixels of an image file, waiting for the workers if it is being preloaded
+     * and decoding it on the calling thread if it was never asked for.
+     * @param filepath
+     * The path to the image file.
+     * @return
+     * The decoded image, shared by every caller.
+     * @throws IOException
+     * If the file cannot be read or is not an image.
+     */
+    public static BufferedImage getDecoded(String filepath) throws IOException {
+        Future<BufferedImage> decoded = DECODED.get(filepath);
+        if (decoded == null) {
+            BufferedImage image = decode(filepath);
+            DECODED.putIfAbsent(filepath, CompletableFuture.completedFuture(image));
+            return image;
+        }
+
+        try {
+            return decoded.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decoding " + filepath, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not decode " + filepath, e.getCause());
+        }
+    }
+
+    /**
+     * Notes that an image file is in use, such as by a level. May be called on any thread.
+     * @param filepath
+     * The path to the image file.
+     */
+    public static synchronized void retain(String filepath) {
+        REFERENCES.merge(filepath, 1, Integer::sum);
+    }
+
+    /**
+     * Notes that an image file is no longer used by whoever retained it. Only called on the thread that draws the game.
+     * Once nothing uses it, its decoded pixels and its entry in the loaded images are dropped,
+     * and they are loaded again if needed. Sprites that already hold its image keep it.
+     * @param filepath
+     * The path to the image file.
+     */
+    public static synchronized void release(String filepath) {
+        Integer references = REFERENCES.get(filepath);
+        if (references == null)
+            return;
+
+        if (references > 1) {
+            REFERENCES.put(filepath, references - 1);
+        } else {
+            REFERENCES.remove(filepath);
+            IMAGES.remove(filepath);
+            DECODED.remove(filepath);
+        }
+    }
+
+    private static BufferedImage decode(String filepath) throws IOException {
+        BufferedImage image = ImageIO.read(new File(filepath));
+        if (image == null)
+            throw new IOException(filepath + " is not a readable image");
+        return image;
+    }
+
+    //Sizes come from the dimensions table, so nothing has to be decoded to plan the atlas
+    private static boolean fitsAtlas(String filepath) {
+        Sprite sprite = new Sprite(filepath);
+        return (sprite.getWidth() <= MAX_ATLAS_SPRITE_SIZE && sprite.getHeight() <= MAX_ATLAS_SPRITE_SIZE);
+    }
+
+    private static double spriteHeight(String filepath) {
+        return new Sprite(filepath).getHeight();
+    }
+
+    //Packs the sprites in rows from the top left and writes the atlas, run on a worker.
+    //Sprites that cannot be decoded are left out and drawn on their own
+    private static File composeAtlas(ArrayList<String> filepaths) throws IOException {
+        HashMap<String, double[]> sections = new HashMap<>();
+        HashMap<String, BufferedImage> images = new HashMap<>();
+        int x = 0, y = 0, rowHeight = 0;
+        for (String filepath : filepaths) {
+            BufferedImage image;
+            try {
+                image = getDecoded(filepath);
+            } catch (IOException e) {
+                System.err.println("Leaving " + filepath + " out of the sprite atlas: " + e.getMessage());
+                continue;
+            }
+
+            images.put(filepath, image);
+            if (x + image.getWidth() > ATLAS_WIDTH) {
+                x = 0;
+                y += rowHeight + ATLAS_PADDING;
+                rowHeight = 0;
+            }
+            sections.put(filepath, new double[] {x, y, image.getWidth(), image.getHeight()});
+            x += image.getWidth() + ATLAS_PADDING;
+            rowHeight = Math.max(rowHeight, image.getHeight());
+        }
+
+        if (images.isEmpty())
+            throw new IOException("no sprite could be decoded");
+
+        BufferedImage atlasImage = new BufferedImage(ATLAS_WIDTH, y + rowHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = atlasImage.createGraphics();
+        try {
+            for (String filepath : images.keySet()) {
+                double[] section = sections.get(filepath);
+                graphics.drawImage(images.get(filepath), (int) section[0], (int) section[1], null);
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        File file = File.createTempFile(ATLAS_PREFIX, "." + ATLAS_FORMAT);
+        file.deleteOnExit();
+        ImageIO.write(atlasImage, ATLAS_FORMAT, file);
+
+        //Published before the future completes, and only read once update has seen it complete
+        for (String filepath : sections.keySet()) {
+            double[] section = sections.get(filepath);
+            DrawOptions[] rotations = new DrawOptions[Sprite.ROTATION_COUNT];
+            for (int rotation = 0; rotation < Sprite.ROTATION_COUNT; rotation++)
+                rotations[rotation] = new DrawOptions().setSection(section[0], section[1], section[2], section[3])
+                        .setRotation(rotation * Sprite.QUARTER_TURN);
+            ATLAS_OPTIONS.put(filepath, rotations);
+        }
+        ATLAS_SECTIONS.putAll(sections);
+        return file;
+    }
+}
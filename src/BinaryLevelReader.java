@@ -0,0 +1,180 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads compiled .sdlvl levels written by LevelCompiler.
+ * The file is mapped read-only and its records are read in place, so nothing has to be parsed
+ * and loading only costs as much as the objects it creates.
+ *
+ * Layout, every number big-endian:
+ * header      int magic, short version, short flags,
+ *             int left, top, right and bottom of the world,
+ *             int number of groups
+ * groups      per group: int index of the type in LevelReader.ENTRY_TYPES, int number of records
+ * grid        only if flags has HAS_GRID_LAYOUT: double originX, originY, cellSize, int columns, rows
+ * records     per group in order: int x, int y per record
+ */
+public class BinaryLevelReader {
+    /**
+     * The file extension of compiled levels.
+     */
+    public final static String EXTENSION = ".sdlvl";
+    /**
+     * The first four bytes of every compiled level, "SDLV".
+     */
+    public final static int MAGIC = 0x53444C56;
+    /**
+     * The version of the layout written and read by this game.
+     */
+    public final static short VERSION = 1;
+    /**
+     * Flag set when the file stores the layout of the spatial index.
+     */
+    public final static short HAS_GRID_LAYOUT = 1;
+
+    /**
+     * Size of the header in bytes.
+     */
+    public final static int HEADER_BYTES = 4 + 2 + 2 + 4*4 + 4;
+    /**
+     * Size of each group in bytes.
+     */
+    public final static int GROUP_BYTES = 4 + 4;
+    /**
+     * Size of the grid layout in bytes.
+     */
+    public final static int GRID_LAYOUT_BYTES = 3*8 + 2*4;
+    /**
+     * Size of each record in bytes.
+     */
+    public final static int RECORD_BYTES = 4 + 4;
+
+    private final static String TOP_LEFT = "TopLeft";
+    private final static String BOTTOM_RIGHT = "BottomRight";
+
+
+    /**
+     * Checks if a level file is compiled, going by its extension.
+     * @param filepath
+     * The path to the level file.
+     * @return
+     * Whether the file is a compiled level.
+     */
+    public static boolean isCompiled(String filepath) {
+        return filepath.endsWith(EXTENSION);
+    }
+
+    /**
+     * Gives the path of the compiled level made from a .csv level.
+     * @param csvFilepath
+     * The path to the .csv level.
+     * @return
+     * The path of the compiled level, next to the .csv level.
+     */
+    public static String compiledPath(String csvFilepath) {
+        int nameStart = Math.max(csvFilepath.lastIndexOf('/'), csvFilepath.lastIndexOf(File.separatorChar)) + 1;
+        int extensionStart = csvFilepath.lastIndexOf('.');
+        if (extensionStart <= nameStart)
+            return csvFilepath + EXTENSION;
+        return csvFilepath.substring(0, extensionStart) + EXTENSION;
+    }
+
+    /**
+     * Picks the compiled version of a .csv level if there is one at least as new as the .csv level,
+     * otherwise the .csv level itself.
+     * @param csvFilepath
+     * The path to the .csv level.
+     * @return
+     * The path of the level file that should be loaded.
+     */
+    public static String preferCompiled(String csvFilepath) {
+        File csvFile = new File(csvFilepath);
+        File compiledFile = new File(compiledPath(csvFilepath));
+        if (compiledFile.isFile() && compiledFile.lastModified() >= csvFile.lastModified())
+            return compiledFile.getPath();
+        return csvFilepath;
+    }
+
+    /**
+     * Reads a compiled level and passes the corners of the world and then every record to a handler.
+     * Records are passed grouped by type, in the order the groups are stored.
+     * @param filepath
+     * The path to the compiled level.
+     * @param handler
+     * The handler building the level.
+     * @return
+     * The layout of the spatial index stored in the file, or null if it has none.
+     * @throws IOException
+     * If the file cannot be read or is not a compiled level of this version.
+     */
+    public static GridLayout read(String filepath, LevelEntryHandler handler) throws IOException {
+        MappedByteBuffer level;
+        try (FileChannel levelFile = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+            if (levelFile.size() > Integer.MAX_VALUE)
+                throw new IOException(filepath + ": compiled level is too large");
+            //The mapping stays valid after the channel is closed
+            level = levelFile.map(FileChannel.MapMode.READ_ONLY, 0, levelFile.size());
+        }
+
+        checkHeader(filepath, level);
+        short flags = level.getShort(6);
+        int groupCount = level.getInt(24);
+        if (groupCount < 0 || groupCount > (level.limit() - HEADER_BYTES) / GROUP_BYTES)
+            throw new IOException(filepath + ": compiled level is truncated");
+
+        int groupsStart = HEADER_BYTES;
+        int gridStart = groupsStart + groupCount * GROUP_BYTES;
+        int recordsStart = gridStart + ((flags & HAS_GRID_LAYOUT) != 0 ? GRID_LAYOUT_BYTES : 0);
+        checkSize(filepath, level, groupCount, recordsStart);
+
+        handler.resolveEntry(TOP_LEFT, level.getInt(8), level.getInt(12));
+        handler.resolveEntry(BOTTOM_RIGHT, level.getInt(16), level.getInt(20));
+
+        int position = recordsStart;
+        for (int group = 0; group < groupCount; group++) {
+            String type = LevelReader.ENTRY_TYPES[level.getInt(groupsStart + group * GROUP_BYTES)];
+            int recordCount = level.getInt(groupsStart + group * GROUP_BYTES + 4);
+
+            for (int record = 0; record < recordCount; record++) {
+                handler.resolveEntry(type, level.getInt(position), level.getInt(position + 4));
+                position += RECORD_BYTES;
+            }
+        }
+
+        if ((flags & HAS_GRID_LAYOUT) == 0)
+            return null;
+        return new GridLayout(level.getDouble(gridStart), level.getDouble(gridStart + 8),
+                level.getDouble(gridStart + 16), level.getInt(gridStart + 24), level.getInt(gridStart + 28));
+    }
+
+    private static void checkHeader(String filepath, MappedByteBuffer level) throws IOException {
+        if (level.limit() < HEADER_BYTES || level.getInt(0) != MAGIC)
+            throw new IOException(filepath + ": not a compiled level");
+        if (level.getShort(4) != VERSION)
+            throw new IOException(filepath + ": compiled level version " + level.getShort(4)
+                    + " is not supported, recompile it with LevelCompiler");
+    }
+
+    //Checks every group and record fits in the file before any of them is handled
+    private static void checkSize(String filepath, MappedByteBuffer level, int groupCount, int recordsStart)
+            throws IOException {
+        if (recordsStart > level.limit())
+            throw new IOException(filepath + ": compiled level is truncated");
+
+        long recordBytes = 0;
+        for (int group = 0; group < groupCount; group++) {
+            int type = level.getInt(HEADER_BYTES + group * GROUP_BYTES);
+            int recordCount = level.getInt(HEADER_BYTES + group * GROUP_BYTES + 4);
+            if (type < 0 || type >= LevelReader.ENTRY_TYPES.length || recordCount < 0)
+                throw new IOException(filepath + ": group " + group + " is invalid");
+            recordBytes += (long) recordCount * RECORD_BYTES;
+        }
+
+        if (recordsStart + recordBytes != level.limit())
+            throw new IOException(filepath + ": compiled level size does not match its groups");
+    }
+}
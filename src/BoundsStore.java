@@ -0,0 +1,341 @@
+import java.util.Arrays;
+
+/**
+ * Stores the boundaries of every object in a world as parallel arrays, one slot per object,
+ * so loops over many objects read contiguous memory instead of one boundary object each.
+ * A WorldObject only keeps the store and its slot.
+ * Slots are handed out in creation order and are never reused,
+ * so comparing slots gives the order the objects were created in.
+ */
+public class BoundsStore {
+    /**
+     * Type of a slot whose object has been removed from the world.
+     */
+    public final static byte REMOVED = 0;
+    /**
+     * Type of the player character.
+     */
+    public final static byte PLAYER = 1;
+    /**
+     * Type of walls and trees.
+     */
+    public final static byte OBSTACLE = 2;
+    /**
+     * Type of sinkholes.
+     */
+    public final static byte SINKHOLE = 3;
+    /**
+     * Type of demons and Navec.
+     */
+    public final static byte ENEMY = 4;
+    /**
+     * Type of the enemies' fire.
+     */
+    public final static byte FIRE = 5;
+
+    private final static int DEFAULT_CAPACITY = 64;
+
+    private double[] leftBounds, topBounds, rightBounds, botBounds;
+    //Where each boundary was when savePositions was last called, used to draw between updates
+    private double[] previousLeftBounds, previousTopBounds;
+    private byte[] types;
+    private WorldObject[] objects;
+    private int size = 0;
+    //Slots whose objects were marked for removal since the world last swept them, in the order they were marked
+    private int[] tombstones = new int[DEFAULT_CAPACITY];
+    private int tombstoneCount = 0;
+
+
+    /**
+     * Instantiates an empty store.
+     */
+    public BoundsStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Instantiates an empty store with room for a number of objects before it has to grow.
+     * @param capacity
+     * The number of objects the store initially has room for.
+     */
+    public BoundsStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        leftBounds = new double[capacity];
+        topBounds = new double[capacity];
+        rightBounds = new double[capacity];
+        botBounds = new double[capacity];
+        previousLeftBounds = new double[capacity];
+        previousTopBounds = new double[capacity];
+        types = new byte[capacity];
+        objects = new WorldObject[capacity];
+    }
+
+    /**
+     * Gives an object the next free slot.
+     * @param object
+     * The object the slot belongs to.
+     * @param type
+     * The type of the object, one of the type constants of this class.
+     * @param leftBound
+     * X coordinate of the left edge.
+     * @param topBound
+     * Y coordinate of the top edge.
+     * @param rightBound
+     * X coordinate of the right edge.
+     * @param botBound
+     * Y coordinate of the bottom edge.
+     * @return
+     * The object's slot.
+     */
+    public int add(WorldObject object, byte type,
+                   double leftBound, double topBound, double rightBound, double botBound) {
+        if (size == types.length)
+            grow();
+
+        int slot = size++;
+        objects[slot] = object;
+        types[slot] = type;
+        setBounds(slot, leftBound, topBound, rightBound, botBound);
+        previousLeftBounds[slot] = leftBound;
+        previousTopBounds[slot] = topBound;
+        return slot;
+    }
+
+    /**
+     * Marks the object in a slot as removed. The slot is not given to another object,
+     * and keeps the object so it can be restored.
+     * @param slot
+     * The object's slot.
+     */
+    public void remove(int slot) {
+        types[slot] = REMOVED;
+    }
+
+    /**
+     * Puts a removed object back in its slot, such as when a saved state is restored.
+     * @param slot
+     * The object's slot.
+     * @param type
+     * The type of the object, one of the type constants of this class.
+     */
+    public void restore(int slot, byte type) {
+        types[slot] = type;
+    }
+
+    /**
+     * Marks the object in a slot to be taken out of its world at the world's next sweep,
+     * so everything removed in between is taken out in one batch.
+     * The object keeps its slot and type until then. An object is marked once.
+     * @param slot
+     * The object's slot.
+     */
+    public void markRemoved(int slot) {
+        if (tombstoneCount == tombstones.length)
+            tombstones = Arrays.copyOf(tombstones, tombstones.length * 2);
+        tombstones[tombstoneCount++] = slot;
+    }
+
+    /**
+     * Forgets the slots marked for removal, once the world has swept them.
+     */
+    public void clearTombstones() {
+        tombstoneCount = 0;
+    }
+
+    /**
+     * Moves a boundary without changing its size.
+     * @param slot
+     * The object's slot.
+     * @param xDistance
+     * Distance moved along the x axis.
+     * @param yDistance
+     * Distance moved along the y axis.
+     */
+    public void translate(int slot, double xDistance, double yDistance) {
+        leftBounds[slot] += xDistance;
+        rightBounds[slot] += xDistance;
+        topBounds[slot] += yDistance;
+        botBounds[slot] += yDistance;
+    }
+
+    /**
+     * Sets every edge of a boundary.
+     * @param slot
+     * The object's slot.
+     * @param leftBound
+     * X coordinate of the left edge.
+     * @param topBound
+     * Y coordinate of the top edge.
+     * @param rightBound
+     * X coordinate of the right edge.
+     * @param botBound
+     * Y coordinate of the bottom edge.
+     */
+    public void setBounds(int slot, double leftBound, double topBound, double rightBound, double botBound) {
+        leftBounds[slot] = leftBound;
+        topBounds[slot] = topBound;
+        rightBounds[slot] = rightBound;
+        botBounds[slot] = botBound;
+    }
+
+    /**
+     * Checks if two boundaries overlap, edges included.
+     * @param slot
+     * The first object's slot.
+     * @param otherSlot
+     * The second object's slot.
+     * @return
+     * Whether the boundaries overlap.
+     */
+    public boolean overlaps(int slot, int otherSlot) {
+        return (topBounds[slot] <= botBounds[otherSlot] &&
+                botBounds[slot] >= topBounds[otherSlot] &&
+                leftBounds[slot] <= rightBounds[otherSlot] &&
+                rightBounds[slot] >= leftBounds[otherSlot]);
+    }
+
+    /**
+     * Remembers where every boundary is, so objects can later be drawn between these positions
+     * and the ones they move to.
+     */
+    public void savePositions() {
+        System.arraycopy(leftBounds, 0, previousLeftBounds, 0, size);
+        System.arraycopy(topBounds, 0, previousTopBounds, 0, size);
+    }
+
+    /**
+     * Adds the type and boundary of every slot to a hash, in slot order.
+     * @param hash
+     * The hash so far.
+     * @return
+     * The hash with every slot added.
+     */
+    public long hash(long hash) {
+        for (int slot = 0; slot < size; slot++) {
+            hash = World.mixHash(hash, types[slot]);
+            hash = World.mixHash(hash, Double.doubleToLongBits(leftBounds[slot]));
+            hash = World.mixHash(hash, Double.doubleToLongBits(topBounds[slot]));
+            hash = World.mixHash(hash, Double.doubleToLongBits(rightBounds[slot]));
+            hash = World.mixHash(hash, Double.doubleToLongBits(botBounds[slot]));
+        }
+        return hash;
+    }
+
+    private void grow() {
+        int capacity = types.length * 2;
+        leftBounds = Arrays.copyOf(leftBounds, capacity);
+        topBounds = Arrays.copyOf(topBounds, capacity);
+        rightBounds = Arrays.copyOf(rightBounds, capacity);
+        botBounds = Arrays.copyOf(botBounds, capacity);
+        previousLeftBounds = Arrays.copyOf(previousLeftBounds, capacity);
+        previousTopBounds = Arrays.copyOf(previousTopBounds, capacity);
+        types = Arrays.copyOf(types, capacity);
+        objects = Arrays.copyOf(objects, capacity);
+    }
+
+    //Set methods
+    /**
+     * Sets the right edge of a boundary.
+     * @param slot
+     * The object's slot.
+     * @param rightBound
+     * X coordinate of the new right edge.
+     */
+    public void setRightBound(int slot, double rightBound) {
+        rightBounds[slot] = rightBound;
+    }
+
+    //Get methods
+    /**
+     *
+     * @return
+     * The number of slots handed out, including removed ones.
+     */
+    public int size() {
+        return size;
+    }
+    /**
+     *
+     * @return
+     * The number of slots marked for removal since the world last swept them.
+     */
+    public int getTombstoneCount() {
+        return tombstoneCount;
+    }
+    /**
+     *
+     * @return
+     * A slot marked for removal, by the order it was marked in.
+     */
+    public int getTombstone(int index) {
+        return tombstones[index];
+    }
+    /**
+     *
+     * @return
+     * The type of the object in a slot.
+     */
+    public byte getType(int slot) {
+        return types[slot];
+    }
+    /**
+     *
+     * @return
+     * The object in a slot, which is kept after the object is removed.
+     */
+    public WorldObject getObject(int slot) {
+        return objects[slot];
+    }
+    /**
+     *
+     * @return
+     * Left edge of the boundary in a slot.
+     */
+    public double getLeftBound(int slot) {
+        return leftBounds[slot];
+    }
+    /**
+     *
+     * @return
+     * Top edge of the boundary in a slot.
+     */
+    public double getTopBound(int slot) {
+        return topBounds[slot];
+    }
+    /**
+     *
+     * @return
+     * Right edge of the boundary in a slot.
+     */
+    public double getRightBound(int slot) {
+        return rightBounds[slot];
+    }
+    /**
+     *
+     * @return
+     * Bottom edge of the boundary in a slot.
+     */
+    public double getBotBound(int slot) {
+        return botBounds[slot];
+    }
+    /**
+     *
+     * @param alpha
+     * How far between the saved position and the current one, from 0 to 1.
+     * @return
+     * Left edge of the boundary in a slot, between where it was saved and where it is now.
+     */
+    public double getInterpolatedLeftBound(int slot, double alpha) {
+        return previousLeftBounds[slot] + (leftBounds[slot] - previousLeftBounds[slot]) * alpha;
+    }
+    /**
+     *
+     * @param alpha
+     * How far between the saved position and the current one, from 0 to 1.
+     * @return
+     * Top edge of the boundary in a slot, between where it was saved and where it is now.
+     */
+    public double getInterpolatedTopBound(int slot, double alpha) {
+        return previousTopBounds[slot] + (topBounds[slot] - previousTopBounds[slot]) * alpha;
+    }
+}
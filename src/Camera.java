@@ -0,0 +1,80 @@
+/**
+ * Represents the part of the world shown in the window.
+ * The camera keeps a point, usually the player, in the centre of the view,
+ * except near the edges of its area where it stops so nothing outside the area is shown.
+ */
+public class Camera {
+    private final Boundary area;
+
+    private double left = 0, top = 0;
+    private double width = 0, height = 0;
+
+
+    /**
+     * Instantiates the camera.
+     * @param area
+     * The area of the world the camera can show.
+     */
+    public Camera(Boundary area) {
+        this.area = area;
+        left = area.getLeftBound();
+        top = area.getTopBound();
+    }
+
+    /**
+     * Moves the view so a point is in its centre, as far as the area allows.
+     * An area smaller than the view is shown from its top left corner.
+     * @param xCoordinate
+     * X coordinate of the point followed.
+     * @param yCoordinate
+     * Y coordinate of the point followed.
+     * @param viewWidth
+     * The width of the view.
+     * @param viewHeight
+     * The height of the view.
+     */
+    public void follow(double xCoordinate, double yCoordinate, double viewWidth, double viewHeight) {
+        width = viewWidth;
+        height = viewHeight;
+        left = clamp(xCoordinate - viewWidth/2, area.getLeftBound(), area.getRightBound() - viewWidth);
+        top = clamp(yCoordinate - viewHeight/2, area.getTopBound(), area.getBotBound() - viewHeight);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(value, max));
+    }
+
+    //Get methods
+    /**
+     *
+     * @return
+     * X coordinate in the world of the left edge of the view.
+     */
+    public double getLeft() {
+        return left;
+    }
+    /**
+     *
+     * @return
+     * Y coordinate in the world of the top edge of the view.
+     */
+    public double getTop() {
+        return top;
+    }
+    /**
+     *
+     * @return
+     * X coordinate in the world of the right edge of the view.
+     */
+    public double getRight() {
+        return left + width;
+    }
+    /**
+     *
+     * @return
+     * Y coordinate in the world of the bottom edge of the view.
+     */
+    public double getBot() {
+        return top + height;
+    }
+}
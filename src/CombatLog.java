@@ -0,0 +1,381 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records what happens in the fights of a world as fixed-size binary records instead of printing them.
+ * Records go into a ring buffer without taking a lock, and a background thread writes them to a rolling file,
+ * so a slow terminal or pipe never holds up the game.
+ * If the game produces records faster than they are written the newest ones are dropped and counted.
+ * Each log keeps its own tick, moved on by the world recording into it, so a log is only given to
+ * one world at a time. Worlds nobody reads the log of record into NONE.
+ * CombatLogFormatter turns the files back into readable lines.
+ *
+ * File layout, every number big-endian:
+ * header      int MAGIC, short VERSION, short 0
+ * records     int kind, then for DAMAGE and TIMESCALE: long tick, int source, int target,
+ *             int damage, int hp, int max hp. TIMESCALE keeps the change in source and the new timescale in damage.
+ *             For NAME: int id, int length, the UTF-8 name padded to a multiple of 4 bytes.
+ *             A NAME record comes before the first record of each file that uses its id.
+ */
+public class CombatLog {
+    /**
+     * The first four bytes of every log file, "SDCL".
+     */
+    public final static int MAGIC = 0x5344434C;
+    /**
+     * The version of the layout written by this game.
+     */
+    public final static short VERSION = 1;
+    /**
+     * Record of an entity taking damage.
+     */
+    public final static int DAMAGE = 1;
+    /**
+     * Record of the game's timescale being changed.
+     */
+    public final static int TIMESCALE = 2;
+    /**
+     * Record giving the name of the source or target id used by other records.
+     */
+    public final static int NAME = 3;
+    /**
+     * Size in bytes of a DAMAGE or TIMESCALE record in the file.
+     */
+    public final static int RECORD_BYTES = 4 + 8 + 5*4;
+    /**
+     * Size in bytes of the file header.
+     */
+    public final static int HEADER_BYTES = 4 + 2 + 2;
+    /**
+     * The file the game writes its log to.
+     */
+    public final static Path LOG_FILE = Paths.get("logs", "combat.log");
+    /**
+     * A log that drops every record. It never starts a thread or creates a file.
+     */
+    public final static CombatLog NONE = new CombatLog();
+
+    private final static int NO_ID = -1;
+    private final static int MAX_BACKUPS = 3;
+    private final static long MAX_FILE_BYTES = 4 << 20;
+    private final static int MAX_NAME_BYTES = 256;
+    private final static int WRITE_BUFFER_BYTES = 64 << 10;
+    private final static long IDLE_PARK_NS = 1_000_000;
+
+    //Each record in the ring is tick (two ints), kind, source, target, damage, hp and max hp
+    private final static int RECORD_INTS = 8;
+    private final static int CAPACITY = 1 << 14;
+
+    private final Path logFile;
+    private final int[] records;
+    //The sequence number last written to each position of the ring, read by the writer before the record
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final ConcurrentHashMap<String, Integer> nameIds = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<String> names = new CopyOnWriteArrayList<>();
+
+    //The sequence number of the next record to write, only ever changed by the writer thread
+    private volatile long drained = 0;
+    //Only moved on and read by the thread updating the world
+    private long tick = 0;
+    private volatile boolean closing = false;
+    private volatile Thread writer;
+
+
+    /**
+     * Instantiates a log. Nothing is written and no thread is started until the first record.
+     * @param logFile
+     * The file written to. Older files are moved to the same path followed by .1, .2 and so on.
+     */
+    public CombatLog(Path logFile) {
+        this.logFile = logFile;
+        records = new int[CAPACITY * RECORD_INTS];
+        published = new AtomicLongArray(CAPACITY);
+        for (int i = 0; i < CAPACITY; i++)
+            published.set(i, -1);
+    }
+
+    //The log that drops every record
+    private CombatLog() {
+        logFile = null;
+        records = null;
+        published = null;
+    }
+
+    /**
+     * Records an entity taking damage.
+     * @param sourceName
+     * The name of the source of damage.
+     * @param targetName
+     * The name of the entity receiving the damage.
+     * @param dmgTaken
+     * The amount of damage received.
+     * @param hp
+     * The entity's health after the damage.
+     * @param maxHp
+     * The entity's maximum health.
+     */
+    public void damage(String sourceName, String targetName, int dmgTaken, int hp, int maxHp) {
+        if (logFile != null)
+            append(DAMAGE, nameId(sourceName), nameId(targetName), dmgTaken, hp, maxHp);
+    }
+
+    /**
+     * Records the game's timescale being changed, or an attempt to change it past its limits.
+     * @param change
+     * 1 if the game was sped up, -1 if it was slowed down.
+     * @param timescale
+     * The timescale after the change.
+     */
+    public void timescale(int change, int timescale) {
+        append(TIMESCALE, change, NO_ID, timescale, 0, 0);
+    }
+
+    /**
+     * Moves the log on to the next tick. Called once per update by the world recording into the log.
+     */
+    public void advanceTick() {
+        tick++;
+    }
+
+    /**
+     * Writes every record still in the ring and closes the file.
+     * Called when the program exits, records made afterwards are dropped.
+     */
+    public void close() {
+        closing = true;
+        Thread running = writer;
+        if (running == null)
+            return;
+
+        LockSupport.unpark(running);
+        try {
+            running.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //Get methods
+    /**
+     *
+     * @return
+     * The number of records dropped because the ring was full.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    //Claims the next position of the ring and publishes the record once it is filled in
+    private void append(int kind, int source, int target, int damage, int hp, int maxHp) {
+        if (logFile == null)
+            return;
+        if (closing) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (writer == null)
+            startWriter();
+
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - drained >= CAPACITY) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) (sequence & (CAPACITY - 1));
+        int offset = index * RECORD_INTS;
+        long currentTick = tick;
+        records[offset] = (int) (currentTick >>> 32);
+        records[offset + 1] = (int) currentTick;
+        records[offset + 2] = kind;
+        records[offset + 3] = source;
+        records[offset + 4] = target;
+        records[offset + 5] = damage;
+        records[offset + 6] = hp;
+        records[offset + 7] = maxHp;
+        published.set(index, sequence);
+    }
+
+    private int nameId(String name) {
+        Integer id = nameIds.get(name);
+        if (id != null)
+            return id;
+
+        synchronized (names) {
+            return nameIds.computeIfAbsent(name, key -> {
+                names.add(key);
+                return names.size() - 1;
+            });
+        }
+    }
+
+    private synchronized void startWriter() {
+        if (writer != null)
+            return;
+
+        Thread thread = new Thread(new Writer(), "combat-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "combat-log-close"));
+        writer = thread;
+    }
+
+
+    //Drains the ring into the current file, moving on to a new file when it is full
+    private class Writer implements Runnable {
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+        private FileChannel file;
+        private long fileBytes;
+        private int namesWritten;
+        private boolean failed = false;
+
+        @Override
+        public void run() {
+            while (true) {
+                boolean done = closing;
+                if (!drain()) {
+                    if (done)
+                        break;
+                    LockSupport.parkNanos(IDLE_PARK_NS);
+                }
+            }
+
+            flush();
+            closeFile();
+        }
+
+        //Returns whether any record was drained
+        private boolean drain() {
+            long sequence = drained;
+            long first = sequence;
+
+            while (true) {
+                int index = (int) (sequence & (CAPACITY - 1));
+                if (published.get(index) != sequence)
+                    break;
+
+                if (!failed)
+                    writeRecord(index * RECORD_INTS);
+                sequence++;
+                drained = sequence;
+            }
+
+            if (sequence != first)
+                flush();
+            return (sequence != first);
+        }
+
+        private void writeRecord(int offset) {
+            int kind = records[offset + 2];
+            int source = records[offset + 3], target = records[offset + 4];
+            if (file == null || fileBytes + RECORD_BYTES + 2 * MAX_NAME_BYTES > MAX_FILE_BYTES)
+                rollFile();
+            if (failed)
+                return;
+
+            if (kind == DAMAGE) {
+                while (namesWritten <= Math.max(source, target))
+                    writeName(namesWritten++);
+            }
+
+            ensureSpace(RECORD_BYTES);
+            buffer.putInt(kind);
+            buffer.putInt(records[offset]).putInt(records[offset + 1]);
+            for (int i = 3; i < RECORD_INTS; i++)
+                buffer.putInt(records[offset + i]);
+            fileBytes += RECORD_BYTES;
+        }
+
+        private void writeName(int id) {
+            byte[] name = names.get(id).getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(name.length, MAX_NAME_BYTES - 12);
+            int paddedLength = (length + 3) & ~3;
+
+            ensureSpace(12 + paddedLength);
+            buffer.putInt(NAME).putInt(id).putInt(length);
+            buffer.put(name, 0, length);
+            for (int i = length; i < paddedLength; i++)
+                buffer.put((byte) 0);
+            fileBytes += 12 + paddedLength;
+        }
+
+        private void ensureSpace(int bytes) {
+            if (buffer.remaining() < bytes)
+                flush();
+        }
+
+        private void flush() {
+            buffer.flip();
+            try {
+                while (file != null && buffer.hasRemaining())
+                    file.write(buffer);
+            } catch (IOException e) {
+                fail(e);
+            }
+            buffer.clear();
+        }
+
+        //Moves every file back one backup, dropping the oldest, and starts a new file
+        private void rollFile() {
+            flush();
+            closeFile();
+            try {
+                Files.createDirectories(logFile.toAbsolutePath().getParent());
+                for (int backup = MAX_BACKUPS - 1; backup >= 0; backup--) {
+                    Path older = backupPath(backup);
+                    if (Files.exists(older))
+                        Files.move(older, backupPath(backup + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                file = FileChannel.open(logFile, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+                fileBytes = HEADER_BYTES;
+                namesWritten = 0;
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        private void closeFile() {
+            try {
+                if (file != null)
+                    file.close();
+            } catch (IOException e) {
+                fail(e);
+            }
+            file = null;
+        }
+
+        //The game keeps running without its log, records are still drained so the ring never fills
+        private void fail(IOException e) {
+            if (!failed)
+                System.err.println("Combat log disabled: " + e);
+            failed = true;
+            file = null;
+            buffer.clear();
+        }
+
+        private Path backupPath(int backup) {
+            return (backup == 0) ? logFile : Paths.get(logFile + "." + backup);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+
+/**
+ * Turns the binary files written by CombatLog into readable lines.
+ * Usage: CombatLogFormatter [logFile...], reading logs/combat.log by default
+ */
+public class CombatLogFormatter {
+    private final static int NAME_HEADER_BYTES = 12;
+
+    private CombatLogFormatter() {}
+
+    /**
+     * The entry point for the program.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            format(CombatLog.LOG_FILE, System.out);
+            return;
+        }
+
+        for (String filepath : args)
+            format(Paths.get(filepath), System.out);
+    }
+
+    /**
+     * Prints every record of a log file as a line of text.
+     * @param logFile
+     * The log file written by CombatLog.
+     * @param out
+     * The stream the lines are printed to.
+     * @throws IOException
+     * If the file cannot be read or is not a log file of this version.
+     */
+    public static void format(Path logFile, PrintStream out) throws IOException {
+        ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(logFile));
+        if (log.remaining() < CombatLog.HEADER_BYTES || log.getInt() != CombatLog.MAGIC)
+            throw new IOException(logFile + ": not a combat log");
+        if (log.getShort() != CombatLog.VERSION)
+            throw new IOException(logFile + ": combat log version is not supported");
+        log.getShort();
+
+        HashMap<Integer, String> names = new HashMap<>();
+        while (log.remaining() >= NAME_HEADER_BYTES) {
+            int kind = log.getInt();
+            if (kind == CombatLog.NAME) {
+                int id = log.getInt();
+                int length = log.getInt();
+                byte[] name = new byte[length];
+                log.get(name);
+                log.position(log.position() + (((length + 3) & ~3) - length));
+                names.put(id, new String(name, StandardCharsets.UTF_8));
+                continue;
+            }
+
+            if (log.remaining() < CombatLog.RECORD_BYTES - 4)
+                break;
+            long tick = log.getLong();
+            int source = log.getInt(), target = log.getInt();
+            int damage = log.getInt(), hp = log.getInt(), maxHp = log.getInt();
+            out.println(formatRecord(kind, tick, names.get(source), names.get(target), source, damage, hp, maxHp));
+        }
+    }
+
+    /**
+     * Formats one record the way the game used to print it.
+     * @param kind
+     * CombatLog.DAMAGE or CombatLog.TIMESCALE.
+     * @param tick
+     * The tick the record was made in.
+     * @param sourceName
+     * The name of the source of damage.
+     * @param targetName
+     * The name of the entity receiving the damage.
+     * @param change
+     * For timescale records, 1 if the game was sped up and -1 if it was slowed down.
+     * @param damage
+     * The damage received, or the new timescale for timescale records.
+     * @param hp
+     * The entity's health after the damage.
+     * @param maxHp
+     * The entity's maximum health.
+     * @return
+     * The readable line.
+     */
+    public static String formatRecord(int kind, long tick, String sourceName, String targetName,
+                                      int change, int damage, int hp, int maxHp) {
+        String prefix = "[" + tick + "] ";
+        if (kind == CombatLog.TIMESCALE)
+            return prefix + ((change > 0) ? "Sped up" : "Slowed down") + ", Speed:  " + damage;
+
+        return prefix + sourceName + " inflicts " + damage + " damage points on " + targetName + ". " +
+                targetName + "'s current health: " + hp + "/" + maxHp;
+    }
+}
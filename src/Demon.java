@@ -1,4 +1,4 @@
-import bagel.*;
+import java.util.Random;
 
 /**
  * A minor enemy that aims to defeat the player.
@@ -6,11 +6,11 @@ import bagel.*;
  */
 public class Demon extends Enemy {
     private final static String NAME = "Demon";
-    private final static Image LEFT_AVATAR = new Image("res/demon/demonLeft.png");
-    private final static Image RIGHT_AVATAR = new Image("res/demon/demonRight.png");
-    private final static Image LEFT_INVINCIBLE_AVATAR = new Image("res/demon/demonInvincibleLeft.png");
-    private final static Image RIGHT_INVINCIBLE_AVATAR = new Image("res/demon/demonInvincibleRight.png");
-    private final static Image FIRE_IMG = new Image("res/demon/demonFire.png");
+    private final static Sprite LEFT_AVATAR = new Sprite("res/demon/demonLeft.png");
+    private final static Sprite RIGHT_AVATAR = new Sprite("res/demon/demonRight.png");
+    private final static Sprite LEFT_INVINCIBLE_AVATAR = new Sprite("res/demon/demonInvincibleLeft.png");
+    private final static Sprite RIGHT_INVINCIBLE_AVATAR = new Sprite("res/demon/demonInvincibleRight.png");
+    private final static Sprite FIRE_IMG = new Sprite("res/demon/demonFire.png");
     private final static int MAX_HP = 40;
     private final static int DMG = 10;
     private final static int DETECT_RADIUS = 150;
@@ -22,29 +22,33 @@ public class Demon extends Enemy {
      * Starting x coordinate.
      * @param yInput
      * Starting y coordinate.
+     * @param store
+     * The store holding the boundaries of the objects in the demon's world.
+     * @param random
+     * The generator that decides how the demon starts moving.
      */
-    public Demon(int xInput, int yInput) {
-        super(xInput, yInput, MAX_HP, DETECT_RADIUS, LEFT_AVATAR, false);
+    public Demon(int xInput, int yInput, BoundsStore store, Random random) {
+        super(xInput, yInput, MAX_HP, DETECT_RADIUS, LEFT_AVATAR, false, store, random);
     }
 
     @Override
-    protected Image leftAvatar() {
+    protected Sprite leftAvatar() {
         return LEFT_AVATAR;
     }
     @Override
-    protected Image rightAvatar() {
+    protected Sprite rightAvatar() {
         return RIGHT_AVATAR;
     }
     @Override
-    protected Image leftInvincibleAvatar() {
+    protected Sprite leftInvincibleAvatar() {
         return LEFT_INVINCIBLE_AVATAR;
     }
     @Override
-    protected Image rightInvincibleAvatar() {
+    protected Sprite rightInvincibleAvatar() {
         return RIGHT_INVINCIBLE_AVATAR;
     }
     @Override
-    protected Image fireImg() {
+    protected Sprite fireImg() {
         return FIRE_IMG;
     }
 
@@ -57,4 +61,12 @@ public class Demon extends Enemy {
     public String getName() {
         return NAME;
     }
+    /**
+     *
+     * @return
+     * The sprite a demon is created with, which gives the size of its boundary.
+     */
+    static Sprite getSpawnSprite() {
+        return LEFT_AVATAR;
+    }
 }
@@ -1,5 +1,5 @@
-import bagel.Image;
 import java.lang.Math;
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 /**
@@ -35,47 +35,94 @@ public abstract class Enemy extends Entity {
 
     private final int detectRadius;
 
+    //Where the level file places the enemy, which is how an edit of the file finds it again
+    private int spawnXCoordinate;
+    private int spawnYCoordinate;
     private Fire fire;
     private boolean activeFire = false;
     private int movement = STATIONARY;
 
 
     protected Enemy(int xInput, int yInput, int maxHp, int detectRadius,
-                    Image avatar, boolean alwaysAggressive) {
-        super(xInput, yInput, avatar, maxHp, INVINCIBLE_DURATION_MS);
+                    Sprite avatar, boolean alwaysAggressive, BoundsStore store, Random random) {
+        super(xInput, yInput, avatar, maxHp, INVINCIBLE_DURATION_MS, store, BoundsStore.ENEMY);
         this.detectRadius = detectRadius;
-        randomInitialisation(alwaysAggressive);
+        spawnXCoordinate = xInput;
+        spawnYCoordinate = yInput;
+        randomInitialisation(alwaysAggressive, random);
     }
 
     /**
-     * Counts down the enemy's invincibility timer and
-     * detects if player is within range to shoot fire.
+     * First phase of an update: counts down the enemy's invincibility timer and plans its move
+     * against where every object was at the end of the previous tick.
+     * Only the enemy itself is changed, so enemies can be planned in parallel.
      * @param timePassedMs
      * The amount of time that passed for each update of the game in ms.
-     * @param player
-     * Player being targeted.
+     * @param objects
+     * Index of the objects being checked for collision.
+     * @param worldBounds
+     * The boundary of the world the enemy is in.
+     * @param timescale
+     * The game's timescale. Affects the enemy's speed.
      */
-    public void updateEnemy(double timePassedMs, Player player) {
+    public void planUpdate(double timePassedMs, SpatialIndex objects, Boundary worldBounds, int timescale) {
         updateInvincibility(timePassedMs);
-        detectPlayer(player);
+        if (movement != STATIONARY) {
+            long moveStartNs = FrameProfiler.start();
+            planMove(movement, objects, worldBounds, timescale);
+            FrameProfiler.stop(FrameProfiler.ENEMY_MOVE, moveStartNs);
+        }
+    }
 
-        if (activeFire) {
-            fire.drawFire();
+    /**
+     * Second phase of an update, once every enemy is planned: moves the enemy.
+     * Only the enemy is changed, so enemies can be moved in parallel.
+     */
+    public void applyUpdate() {
+        applyPlannedMove();
+    }
+
+    /**
+     * Last phase of an update, run for one enemy at a time in a fixed order:
+     * damages the player if they are touching the enemy's fire.
+     * @param player
+     * Player being targeted.
+     */
+    public void commitUpdate(Player player) {
+        if (activeFire)
             fire.collidePlayer(player);
-        }
+    }
+
+    /**
+     * Draws the enemy's fire if the player is within its range.
+     * The fire is shifted along with the enemy so it stays on the enemy's corner.
+     * @param alpha
+     * How far the enemy is drawn between where it was before the last update and where it is now, from 0 to 1.
+     * @param camera
+     * The camera the world is viewed through.
+     */
+    public void drawFire(double alpha, Camera camera) {
+        if (activeFire)
+            fire.drawFire(getDrawXCoordinate(alpha) - getXCoordinate() - camera.getLeft(),
+                    getDrawYCoordinate(alpha) - getYCoordinate() - camera.getTop());
     }
 
     /**
      * Draws the enemy's model and its health on its top left corner.
+     * @param alpha
+     * How far the enemy is drawn between where it was before the last update and where it is now, from 0 to 1.
+     * @param camera
+     * The camera the world is viewed through.
      */
     @Override
-    public void drawObject() {
-        getImg().drawFromTopLeft(getXCoordinate(), getYCoordinate());
-        getHp().drawHp(ENEMY_HP_FONT_SIZE, getXCoordinate(), getYCoordinate() + ENEMY_HP_Y_SHIFT);
+    public void drawObject(double alpha, Camera camera) {
+        double drawX = getDrawXCoordinate(alpha) - camera.getLeft(), drawY = getDrawYCoordinate(alpha) - camera.getTop();
+        getImg().drawFromTopLeft(drawX, drawY);
+        getHp().drawHp(ENEMY_HP_FONT_SIZE, drawX, drawY + ENEMY_HP_Y_SHIFT);
     }
 
-    private void randomInitialisation(boolean alwaysAggressive) {
-        Random rand = new Random();
+    //Draws from the world's generator, so a world built from the same seed starts the same way
+    private void randomInitialisation(boolean alwaysAggressive, Random rand) {
         setFacingLeft(rand.nextBoolean());
 
         boolean aggressive = alwaysAggressive || rand.nextBoolean();
@@ -86,47 +133,119 @@ public abstract class Enemy extends Entity {
         }
     }
 
-    private void detectPlayer(Player player) {
-        double playerXCoordinate = player.getBounds().getCentreX();
-        double playerYCoordinate = player.getBounds().getCentreY();
+    /**
+     * Checks the player on its own and aims or stops the fire.
+     * The world checks every enemy at once with World.detectPlayer instead.
+     * @param player
+     * Player being targeted.
+     */
+    public void detectPlayer(Player player) {
+        if (detects(player.getCentreX(), player.getCentreY()))
+            aimFire(player);
+        else
+            ceaseFire();
+    }
 
-        if (!checkRadius(playerXCoordinate, playerYCoordinate)) {
-            activeFire = false;
-            return;
-        }
+    /**
+     * Checks if a point is within the enemy's detection radius, measured from its centre.
+     * @param xCoordinate
+     * X coordinate of the point.
+     * @param yCoordinate
+     * Y coordinate of the point.
+     * @return
+     * Whether the point is detected.
+     */
+    public boolean detects(double xCoordinate, double yCoordinate) {
+        double xDistance = getCentreX() - xCoordinate;
+        double yDistance = getCentreY() - yCoordinate;
+        return (xDistance*xDistance + yDistance*yDistance <= (double) detectRadius*detectRadius);
+    }
+
+    /**
+     * Produces fire on the corner of the enemy facing the player.
+     * @param player
+     * Player being targeted.
+     */
+    public void aimFire(Player player) {
+        double playerXCoordinate = player.getCentreX();
+        double playerYCoordinate = player.getCentreY();
 
         activeFire = true;
-        double xCoordinate = getBounds().getCentreX();
-        double yCoordinate = getBounds().getCentreY();
+        double xCoordinate = getCentreX();
+        double yCoordinate = getCentreY();
         double fireWidth = fireImg().getWidth();
         double fireHeight = fireImg().getHeight();
 
+        //The fire is only created the first time the player comes within range, then reused
+        if (fire == null)
+            fire = new Fire(fireImg(), this);
+
         if (playerXCoordinate > xCoordinate && playerYCoordinate < yCoordinate) {
-            fire = new Fire(getBounds().getRightBound(),
-                    getBounds().getTopBound() - fireHeight,
-                    fireImg(), this, NE);
+            fire.aim(getRightBound(),
+                    getTopBound() - fireHeight, NE);
         } else if (playerXCoordinate <= xCoordinate && playerYCoordinate < yCoordinate) {
-            fire = new Fire(getBounds().getLeftBound() - fireWidth,
-                    getBounds().getTopBound() - fireHeight,
-                    fireImg(), this, NW);
+            fire.aim(getLeftBound() - fireWidth,
+                    getTopBound() - fireHeight, NW);
         } else if (playerXCoordinate > xCoordinate && playerYCoordinate >= yCoordinate) {
-            fire = new Fire(getBounds().getRightBound(),
-                    getBounds().getBotBound(),
-                    fireImg(), this, SE);
+            fire.aim(getRightBound(),
+                    getBotBound(), SE);
         } else {
-            fire = new Fire(getBounds().getLeftBound() - fireWidth,
-                    getBounds().getBotBound(),
-                    fireImg(), this, SW);
+            fire.aim(getLeftBound() - fireWidth,
+                    getBotBound(), SW);
         }
+    }
 
+    /**
+     * Stops producing fire.
+     */
+    public void ceaseFire() {
+        activeFire = false;
     }
 
-    //Checks if a point is within the radius
-    private boolean checkRadius(double xCoordinate, double yCoordinate) {
-        return (Math.sqrt(
-                Math.pow(Math.abs(getBounds().getCentreX() - xCoordinate), 2) +
-                Math.pow(Math.abs(getBounds().getCentreY() - yCoordinate), 2))
-                <= detectRadius);
+    /**
+     * Moves the enemy by as much as its spawn location moved in an edit of the level,
+     * keeping its health and movement.
+     * @param xCoordinate
+     * X coordinate of the new spawn location.
+     * @param yCoordinate
+     * Y coordinate of the new spawn location.
+     */
+    public void respawn(int xCoordinate, int yCoordinate) {
+        translate(xCoordinate - spawnXCoordinate, yCoordinate - spawnYCoordinate);
+        spawnXCoordinate = xCoordinate;
+        spawnYCoordinate = yCoordinate;
+        ceaseFire();
+    }
+
+    /**
+     * Writes the enemy's state: its movement, its boundary, the state every entity has and whether it is firing.
+     * Enemies that do not move never leave where they were created, so their boundary is left out.
+     * Layout: byte movement, then double left, top, right and bottom bounds if it moves, the entity state,
+     * byte firing.
+     * @param buffer
+     * The buffer written to, from its position.
+     */
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        buffer.put((byte) movement);
+        if (movement != STATIONARY)
+            buffer.putDouble(getLeftBound()).putDouble(getTopBound()).putDouble(getRightBound()).putDouble(getBotBound());
+        super.writeState(buffer);
+        buffer.put((byte) (activeFire ? 1 : 0));
+    }
+
+    /**
+     * Reads the state written by writeState. A firing enemy's fire is aimed again by the world.
+     * @param buffer
+     * The buffer read from, from its position.
+     */
+    @Override
+    public void readState(ByteBuffer buffer) {
+        movement = buffer.get();
+        if (movement != STATIONARY)
+            setBounds(buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        super.readState(buffer);
+        activeFire = buffer.get() != 0;
     }
 
     @Override
@@ -158,22 +277,22 @@ public abstract class Enemy extends Entity {
     }
 
     //Returns specific avatars to be used by other methods.
-    protected abstract Image leftAvatar();
-    protected abstract Image rightAvatar();
-    protected abstract Image leftInvincibleAvatar();
-    protected abstract Image rightInvincibleAvatar();
-    protected abstract Image fireImg();
+    protected abstract Sprite leftAvatar();
+    protected abstract Sprite rightAvatar();
+    protected abstract Sprite leftInvincibleAvatar();
+    protected abstract Sprite rightInvincibleAvatar();
+    protected abstract Sprite fireImg();
 
     //Get methods
     @Override
-    protected Image getLeftAvatar() {
+    protected Sprite getLeftAvatar() {
         if (isInvincible())
             return leftInvincibleAvatar();
         else
             return leftAvatar();
     }
     @Override
-    protected Image getRightAvatar() {
+    protected Sprite getRightAvatar() {
         if (isInvincible())
             return rightInvincibleAvatar();
         else
@@ -188,4 +307,36 @@ public abstract class Enemy extends Entity {
     public int getMovement() {
         return movement;
     }
+    /**
+     *
+     * @return
+     * The distance from the enemy's centre within which it detects the player.
+     */
+    public int getDetectRadius() {
+        return detectRadius;
+    }
+    /**
+     *
+     * @return
+     * Whether the enemy is producing fire.
+     */
+    public boolean isFiring() {
+        return activeFire;
+    }
+    /**
+     *
+     * @return
+     * X coordinate of where the level file places the enemy.
+     */
+    public int getSpawnXCoordinate() {
+        return spawnXCoordinate;
+    }
+    /**
+     *
+     * @return
+     * Y coordinate of where the level file places the enemy.
+     */
+    public int getSpawnYCoordinate() {
+        return spawnYCoordinate;
+    }
 }
@@ -0,0 +1,63 @@
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs one parallel phase of the enemy update over a range of a world's enemies,
+ * splitting the range in half until it is small enough to run on one thread.
+ */
+public class EnemyUpdateTask extends RecursiveAction {
+    private final static long serialVersionUID = 1L;
+    private final static int SEQUENTIAL_THRESHOLD = 256;
+
+    private final World world;
+    private final int phase;
+    private final double timePassedMs;
+    private final int timescale;
+    private final int start;
+    private final int end;
+
+
+    /**
+     * Instantiates the task.
+     * @param world
+     * The world whose enemies are updated.
+     * @param phase
+     * The phase being run, World.PLAN_PHASE or World.APPLY_PHASE.
+     * @param timePassedMs
+     * The amount of time that passed for each update of the game in ms.
+     * @param timescale
+     * The game's timescale. Affects the enemies' speed.
+     * @param start
+     * Index of the first enemy updated.
+     * @param end
+     * Index after the last enemy updated.
+     */
+    public EnemyUpdateTask(World world, int phase, double timePassedMs, int timescale, int start, int end) {
+        this.world = world;
+        this.phase = phase;
+        this.timePassedMs = timePassedMs;
+        this.timescale = timescale;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+        if (end - start <= SEQUENTIAL_THRESHOLD) {
+            world.runEnemyPhase(phase, timePassedMs, timescale, start, end);
+            return;
+        }
+
+        int middle = (start + end) >>> 1;
+        invokeAll(new EnemyUpdateTask(world, phase, timePassedMs, timescale, start, middle),
+                new EnemyUpdateTask(world, phase, timePassedMs, timescale, middle, end));
+    }
+
+    /**
+     *
+     * @return
+     * Whether a number of enemies is enough to be worth splitting across threads.
+     */
+    public static boolean worthSplitting(int enemyCount) {
+        return enemyCount > SEQUENTIAL_THRESHOLD;
+    }
+}
@@ -1,7 +1,5 @@
-import bagel.Image;
-
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Iterator;
 
 /**
  * Represents characters that can have health, move around and inflict damage.
@@ -9,9 +7,18 @@ import java.util.Iterator;
  */
 public abstract class Entity extends WorldObject implements CanAttack{
     private final static double TIMESCALE_MULTIPLIER = 0.5;
+    private final static int NO_DIRECTION = -1;
+    //Bits of the flags byte of a saved state
+    private final static int FACING_LEFT_FLAG = 1;
+    private final static int INVINCIBLE_FLAG = 1 << 1;
+    private final static int DEAD_FLAG = 1 << 2;
+    //The order moveInDirections resolves its directions in
+    private final static int[] MOVE_ORDER = {ShadowDimension.UP, ShadowDimension.DOWN,
+            ShadowDimension.LEFT, ShadowDimension.RIGHT};
 
     private final Health hp;
     private final double invincibleDurationMs;
+    private final ArrayList<WorldObject> collisionCandidates = new ArrayList<>();
 
     private double stepSize = 0;
     private boolean facingLeft;
@@ -19,10 +26,13 @@ public abstract class Entity extends WorldObject implements CanAttack{
     private double invincibleCountdown = 0;
     private double allowedStepSize = stepSize;
     private boolean dead = false;
+    private int plannedDirection = NO_DIRECTION;
+    private CombatLog combatLog = CombatLog.NONE;
 
 
-    protected Entity(int xInput, int yInput, Image avatar, int maxHp, int invincibleDurationMs) {
-        super(xInput, yInput, avatar);
+    protected Entity(int xInput, int yInput, Sprite avatar, int maxHp, int invincibleDurationMs,
+                     BoundsStore store, byte type) {
+        super(xInput, yInput, avatar, store, type);
         hp = new Health(maxHp);
         this.invincibleDurationMs = invincibleDurationMs;
     }
@@ -52,13 +62,12 @@ public abstract class Entity extends WorldObject implements CanAttack{
         hp.takeDmg(dmgTaken);
         turnInvincible();
 
-        System.out.println(
-                sourceName + " inflicts " + dmgTaken + " damage points on " + getName() + ". " +
-                getName() + "'s current health: " + hp.getValue() + "/" + hp.getMaxHp()
-        );
+        combatLog.damage(sourceName, getName(), dmgTaken, hp.getValue(), hp.getMaxHp());
 
-        if (hp.getValue() <= hp.getMinHp())
+        if (!dead && hp.getValue() <= hp.getMinHp()) {
             dead = true;
+            getStore().markRemoved(getSlot());
+        }
     }
 
 
@@ -67,13 +76,14 @@ public abstract class Entity extends WorldObject implements CanAttack{
 
     /**
      * Moves the entity in a direction,
-     * scans through all objects in its path
+     * scans through the objects in its path
      * and resolves the collision against them one by one.
      * @param direction
      * The direction the entity is moving towards.
      * The definition for the directions are defined in the ShadowDimension class.
-     * @param objectsList
-     * List of objects being checked for collision.
+     * @param objects
+     * Index of the objects being checked for collision.
+     * The entity's own position in the index is refreshed after it moves.
      * @param worldBounds
      * The boundary of the world the object is in.
      * @param timescale
@@ -81,28 +91,87 @@ public abstract class Entity extends WorldObject implements CanAttack{
      * Set to 0 if entity is not meant to be affected by timescale.
      */
     public void moveAndCheckCollision(
-            int direction, ArrayList<WorldObject> objectsList, Boundary worldBounds, int timescale) {
+            int direction, SpatialIndex objects, Boundary worldBounds, int timescale) {
+        planMove(direction, objects, worldBounds, timescale);
+        applyPlannedMove();
+        objects.update(this);
+    }
+
+    /**
+     * Moves the entity in several directions, one after the other in the order up, down, left, right,
+     * with the same result as calling moveAndCheckCollision for each direction in that order.
+     * The objects around every path are found with a single index query and the entity's position
+     * in the index is refreshed once, so moving diagonally costs about as much as moving straight.
+     * @param directions
+     * The directions the entity is moving towards, as bits shifted by the direction.
+     * The definition for the directions are defined in the ShadowDimension class.
+     * @param objects
+     * Index of the objects being checked for collision.
+     * @param worldBounds
+     * The boundary of the world the object is in.
+     * @param timescale
+     * The game's timescale. Affects the movement speed.
+     * Set to 0 if entity is not meant to be affected by timescale.
+     */
+    public void moveInDirections(int directions, SpatialIndex objects, Boundary worldBounds, int timescale) {
+        if (directions == 0)
+            return;
+
+        //Each move is at most a step long and sideways moves stay within a step of the start,
+        //so the bounds stretched by a step towards every direction held cover every path
         setAllowedStepSize(timescale);
-        double worldBoundsDistance = worldBoundsDistance(direction, worldBounds);
+        objects.query(getLeftBound() - reach(directions, ShadowDimension.LEFT),
+                getTopBound() - reach(directions, ShadowDimension.UP),
+                getRightBound() + reach(directions, ShadowDimension.RIGHT),
+                getBotBound() + reach(directions, ShadowDimension.DOWN), collisionCandidates);
+
+        for (int direction : MOVE_ORDER) {
+            if ((directions & (1 << direction)) == 0)
+                continue;
+
+            setAllowedStepSize(timescale);
+            resolveCollisions(direction, worldBounds);
+            move(direction);
+        }
+        collisionCandidates.clear();
+        objects.update(this);
+    }
 
-        if (worldBoundsDistance < allowedStepSize) {
-            allowedStepSize = worldBoundsDistance;
+    /**
+     * Works out how far the entity can move in a direction and resolves the collisions on the way,
+     * without moving the entity or changing any other object.
+     * Entities can plan their moves at the same time, as long as nothing moves until all are planned.
+     * @param direction
+     * The direction the entity is moving towards.
+     * The definition for the directions are defined in the ShadowDimension class.
+     * @param objects
+     * Index of the objects being checked for collision.
+     * @param worldBounds
+     * The boundary of the world the object is in.
+     * @param timescale
+     * The game's timescale. Affects the movement speed.
+     * Set to 0 if entity is not meant to be affected by timescale.
+     */
+    public void planMove(int direction, SpatialIndex objects, Boundary worldBounds, int timescale) {
+        setAllowedStepSize(timescale);
+        if (clampToWorldBounds(direction, worldBounds))
             collideWorldBounds();
-        }
 
-        //objectsIterator used to remove an object as the list is iterated
-        Iterator<WorldObject> objectsIterator = objectsList.iterator();
-        while(objectsIterator.hasNext()) {
-            WorldObject object = objectsIterator.next();
+        //Only objects within a step of the entity's leading edge can be collided against
+        queryPath(direction, objects);
+        resolveObjectCollisions(direction);
+        collisionCandidates.clear();
 
-            if (checkPotentialCollision(object, direction)) {
-                double distance = checkDistance(object, direction);
-                if (distance < allowedStepSize)
-                    collideObject(distance, object, direction);
-            }
-        }
+        plannedDirection = direction;
+    }
 
-        move(direction);
+    /**
+     * Moves the entity by the step worked out in planMove.
+     * Does nothing if no move is planned. The entity's position in any index is not refreshed.
+     */
+    public void applyPlannedMove() {
+        move(plannedDirection);
+        plannedDirection = NO_DIRECTION;
     }
 
     private void setAllowedStepSize(int timescale) {
@@ -117,6 +186,38 @@ public abstract class Entity extends WorldObject implements CanAttack{
         allowedStepSize *= Math.pow(factor, power);
     }
 
+    //Resolves a move against the world bounds and the candidates already found, closest bounds first
+    private void resolveCollisions(int direction, Boundary worldBounds) {
+        if (clampToWorldBounds(direction, worldBounds))
+            collideWorldBounds();
+        resolveObjectCollisions(direction);
+    }
+
+    //Shortens the step to the world's edge, returning whether the edge is within the step
+    private boolean clampToWorldBounds(int direction, Boundary worldBounds) {
+        double worldBoundsDistance = worldBoundsDistance(direction, worldBounds);
+        if (worldBoundsDistance < allowedStepSize) {
+            allowedStepSize = worldBoundsDistance;
+            return true;
+        }
+        return false;
+    }
+
+    private void resolveObjectCollisions(int direction) {
+        for (int i = 0; i < collisionCandidates.size(); i++) {
+            WorldObject object = collisionCandidates.get(i);
+            if (checkPotentialCollision(object, direction)) {
+                double distance = checkDistance(object, direction);
+                if (distance < allowedStepSize)
+                    collideObject(distance, object, direction);
+            }
+        }
+    }
+
+    private double reach(int directions, int direction) {
+        return ((directions & (1 << direction)) != 0) ? allowedStepSize : 0;
+    }
+
     private double worldBoundsDistance(int direction, Boundary worldBounds) {
         double worldBoundDistance;
         switch (direction) {
@@ -138,26 +239,50 @@ public abstract class Entity extends WorldObject implements CanAttack{
         return worldBoundDistance;
     }
 
+    //Finds the objects in the area swept by the entity's leading edge
+    private void queryPath(int direction, SpatialIndex objects) {
+        switch (direction) {
+            case (ShadowDimension.LEFT):
+                objects.query(getLeftBound() - allowedStepSize, getTopBound(),
+                        getLeftBound(), getBotBound(), collisionCandidates);
+                break;
+            case (ShadowDimension.RIGHT):
+                objects.query(getRightBound(), getTopBound(),
+                        getRightBound() + allowedStepSize, getBotBound(), collisionCandidates);
+                break;
+            case (ShadowDimension.UP):
+                objects.query(getLeftBound(), getTopBound() - allowedStepSize,
+                        getRightBound(), getTopBound(), collisionCandidates);
+                break;
+            case (ShadowDimension.DOWN):
+                objects.query(getLeftBound(), getBotBound(),
+                        getRightBound(), getBotBound() + allowedStepSize, collisionCandidates);
+                break;
+            default:
+                collisionCandidates.clear();
+        }
+    }
+
     //Method exists in case there's a behaviour when colliding worldBounds
     protected void collideWorldBounds() {}
     private boolean checkPotentialCollision(WorldObject object, int direction) {
         switch (direction) {
             case(ShadowDimension.LEFT):
-                return (getBounds().getLeftBound() >= object.getBounds().getRightBound() &&
-                        (getBounds().getTopBound() < object.getBounds().getBotBound()) &&
-                        (getBounds().getBotBound() > object.getBounds().getTopBound()));
+                return (getLeftBound() >= object.getRightBound() &&
+                        (getTopBound() < object.getBotBound()) &&
+                        (getBotBound() > object.getTopBound()));
             case(ShadowDimension.RIGHT):
-                return (getBounds().getRightBound() <= object.getBounds().getLeftBound() &&
-                        (getBounds().getTopBound() < object.getBounds().getBotBound()) &&
-                        (getBounds().getBotBound() > object.getBounds().getTopBound()));
+                return (getRightBound() <= object.getLeftBound() &&
+                        (getTopBound() < object.getBotBound()) &&
+                        (getBotBound() > object.getTopBound()));
             case(ShadowDimension.UP):
-                return (getBounds().getTopBound() >= object.getBounds().getBotBound() &&
-                        (getBounds().getLeftBound() < object.getBounds().getRightBound()) &&
-                        (getBounds().getRightBound() > object.getBounds().getLeftBound()));
+                return (getTopBound() >= object.getBotBound() &&
+                        (getLeftBound() < object.getRightBound()) &&
+                        (getRightBound() > object.getLeftBound()));
             case(ShadowDimension.DOWN):
-                return (getBounds().getBotBound() <= object.getBounds().getTopBound() &&
-                        (getBounds().getLeftBound() < object.getBounds().getRightBound()) &&
-                        (getBounds().getRightBound() > object.getBounds().getLeftBound()));
+                return (getBotBound() <= object.getTopBound() &&
+                        (getLeftBound() < object.getRightBound()) &&
+                        (getRightBound() > object.getLeftBound()));
         }
         return false;
     }
@@ -166,16 +291,16 @@ public abstract class Entity extends WorldObject implements CanAttack{
         double distance;
         switch (direction) {
             case (ShadowDimension.LEFT):
-                distance = getBounds().getLeftBound() - object.getBounds().getRightBound();
+                distance = getLeftBound() - object.getRightBound();
                 break;
             case (ShadowDimension.RIGHT):
-                distance = object.getBounds().getLeftBound() - getBounds().getRightBound();
+                distance = object.getLeftBound() - getRightBound();
                 break;
             case (ShadowDimension.UP):
-                distance = getBounds().getTopBound() - object.getBounds().getBotBound();
+                distance = getTopBound() - object.getBotBound();
                 break;
             case (ShadowDimension.DOWN):
-                distance = object.getBounds().getTopBound() - getBounds().getBotBound();
+                distance = object.getTopBound() - getBotBound();
                 break;
             default:
                 return allowedStepSize;
@@ -217,36 +342,58 @@ public abstract class Entity extends WorldObject implements CanAttack{
     }
 
     protected void moveLeft(double stepSize, boolean turn) {
-        setXCoordinate(getXCoordinate() - stepSize);
-        super.getBounds().setLeftBound(super.getBounds().getLeftBound() - stepSize);
-        super.getBounds().setRightBound(super.getBounds().getRightBound() - stepSize);
+        translate(-stepSize, 0);
 
         if (turn)
             facingLeft = true;
     }
     protected void moveRight(double stepSize, boolean turn) {
-        setXCoordinate(getXCoordinate() + stepSize);
-        super.getBounds().setLeftBound(super.getBounds().getLeftBound() + stepSize);
-        super.getBounds().setRightBound(super.getBounds().getRightBound() + stepSize);
+        translate(stepSize, 0);
 
         if (turn)
             facingLeft = false;
     }
     private void moveUp(double stepSize) {
-        setYCoordinate(getYCoordinate() - stepSize);
-        super.getBounds().setTopBound(super.getBounds().getTopBound() - stepSize);
-        super.getBounds().setBotBound(super.getBounds().getBotBound() - stepSize);
+        translate(0, -stepSize);
     }
     private void moveDown(double stepSize) {
-        setYCoordinate(getYCoordinate() + stepSize);
-        super.getBounds().setTopBound(super.getBounds().getTopBound() + stepSize);
-        super.getBounds().setBotBound(super.getBounds().getBotBound() + stepSize);
+        translate(0, stepSize);
     }
 
     /*__________End of move methods__________*/
 
 
 
+    /**
+     * Writes the state of the entity that changes as it is updated: which way it faces, its health,
+     * whether it is dead and its invincibility.
+     * Layout: byte flags, short health, then double invincibility countdown in ms if invincible.
+     * @param buffer
+     * The buffer written to, from its position.
+     */
+    public void writeState(ByteBuffer buffer) {
+        int flags = (facingLeft ? FACING_LEFT_FLAG : 0) | (invincible ? INVINCIBLE_FLAG : 0) | (dead ? DEAD_FLAG : 0);
+        buffer.put((byte) flags);
+        buffer.putShort((short) hp.getValue());
+        if (invincible)
+            buffer.putDouble(invincibleCountdown);
+    }
+
+    /**
+     * Reads the state written by writeState.
+     * @param buffer
+     * The buffer read from, from its position.
+     */
+    public void readState(ByteBuffer buffer) {
+        int flags = buffer.get();
+        facingLeft = (flags & FACING_LEFT_FLAG) != 0;
+        invincible = (flags & INVINCIBLE_FLAG) != 0;
+        dead = (flags & DEAD_FLAG) != 0;
+        hp.setValue(buffer.getShort());
+        invincibleCountdown = invincible ? buffer.getDouble() : 0;
+        plannedDirection = NO_DIRECTION;
+    }
+
     private void turnInvincible() {
         invincible = true;
         invincibleCountdown = invincibleDurationMs;
@@ -271,10 +418,18 @@ public abstract class Entity extends WorldObject implements CanAttack{
     protected void setAllowedStepSize(double allowedStepSize) {
         this.allowedStepSize = allowedStepSize;
     }
+    /**
+     * Sets the log the damage the entity takes is recorded in, the log of its world.
+     * @param combatLog
+     * The log recorded in.
+     */
+    public void setCombatLog(CombatLog combatLog) {
+        this.combatLog = combatLog;
+    }
 
     //Get methods
-    protected abstract Image getLeftAvatar();
-    protected abstract Image getRightAvatar();
+    protected abstract Sprite getLeftAvatar();
+    protected abstract Sprite getRightAvatar();
     protected boolean isFacingLeft() {
         return facingLeft;
     }
@@ -284,7 +439,7 @@ public abstract class Entity extends WorldObject implements CanAttack{
     protected double getStepSize(){
         return stepSize;
     }
-    protected Image getImg() {
+    protected Sprite getImg() {
         if (facingLeft)
             return getLeftAvatar();
         else
@@ -1,55 +1,61 @@
-import bagel.DrawOptions;
-import bagel.Image;
-
 /**
- * Represents the fire an enemy produces that hurts the player
+ * Represents the fire an enemy produces that hurts the player.
+ * Each enemy keeps a single fire and moves it to whichever side the player is on,
+ * so producing fire does not allocate anything.
  */
 public class Fire extends WorldObject {
+    //Quarter turns the fire image is rotated by, indexed by direction - Enemy.NE
+    private final static int[] ROTATIONS = {
+            3,      //NE
+            2,      //NW
+            1,      //SW
+            0       //SE
+    };
+
     private final Enemy hostEnemy;
-    private final Image img;
-    private final int direction;
+    private final Sprite img;
+
+    private int direction = Enemy.SE;
 
 
     /**
-     * Instantiates the fire.
-     * @param xCoordinate
-     * X coordinate of spawn location.
-     * @param yCoordinate
-     * Y coordinate of spawn location.
+     * Instantiates the fire. It is placed with aim before being used.
      * @param img
      * The image of the fire.
      * @param hostEnemy
      * The enemy producing the fire.
-     * @param direction
-     * The direction the fire is being produced relative to the enemy.
      */
-    public Fire(double xCoordinate, double yCoordinate, Image img, Enemy hostEnemy, int direction) {
-        super(xCoordinate, yCoordinate, img);
+    public Fire(Sprite img, Enemy hostEnemy) {
+        //The fire never takes part in collisions, so it keeps its boundary in a store of its own.
+        //This lets enemies create their fire while they are being updated in parallel.
+        super(0, 0, img, new BoundsStore(1), BoundsStore.FIRE);
         this.img = img;
         this.hostEnemy = hostEnemy;
+    }
+
+    /**
+     * Moves the fire to a new spawn location.
+     * @param xCoordinate
+     * X coordinate of spawn location.
+     * @param yCoordinate
+     * Y coordinate of spawn location.
+     * @param direction
+     * The direction the fire is being produced relative to the enemy.
+     */
+    public void aim(double xCoordinate, double yCoordinate, int direction) {
         this.direction = direction;
+        setBounds(xCoordinate, yCoordinate, xCoordinate + img.getWidth(), yCoordinate + img.getHeight());
     }
 
     /**
      * Draws the fire depending on the direction it is fired in.
+     * @param xShift
+     * Distance the fire is drawn away from where it is along the x axis.
+     * @param yShift
+     * Distance the fire is drawn away from where it is along the y axis.
      */
-    public void drawFire() {
-        DrawOptions rotation = new DrawOptions();
-
-        switch (direction) {
-            case (Enemy.NW):
-                rotation.setRotation(Math.PI);
-                break;
-            case (Enemy.NE):
-                rotation.setRotation(3*Math.PI/2);
-                break;
-            case (Enemy.SW):
-                rotation.setRotation(Math.PI/2);
-                break;
-            case (Enemy.SE):
-        }
-
-        img.drawFromTopLeft(getXCoordinate(), getYCoordinate(), rotation);
+    public void drawFire(double xShift, double yShift) {
+        img.drawFromTopLeft(getXCoordinate() + xShift, getYCoordinate() + yShift, ROTATIONS[direction - Enemy.NE]);
     }
 
     /**
@@ -63,7 +69,7 @@ public class Fire extends WorldObject {
     }
 
     @Override
-    protected Image getImg() {
+    protected Sprite getImg() {
         return img;
     }
 }
@@ -0,0 +1,82 @@
+/**
+ * Turns the real time passing between frames into a whole number of fixed-length updates.
+ * Time that does not add up to a whole update is carried over to the next frame,
+ * so the game runs at the same speed however often it is drawn.
+ */
+public class FixedTimestep {
+    private final static double NS_PER_MS = 1e6;
+
+    private final double stepMs;
+    private final int maxStepsPerFrame;
+
+    private double accumulatedMs = 0;
+    private long lastFrameNs;
+    private boolean started = false;
+
+
+    /**
+     * Instantiates the timestep.
+     * @param stepMs
+     * The length of one update in ms.
+     * @param maxStepsPerFrame
+     * The most updates run in one frame. After a long stall the game slows down
+     * instead of spending several frames catching up.
+     */
+    public FixedTimestep(double stepMs, int maxStepsPerFrame) {
+        this.stepMs = stepMs;
+        this.maxStepsPerFrame = maxStepsPerFrame;
+    }
+
+    /**
+     * Adds the time passed since the previous frame and takes out as many whole updates as fit.
+     * The first frame after a reset only starts the clock.
+     * @param nowNs
+     * The current time in ns, from System.nanoTime.
+     * @return
+     * The number of updates to run this frame.
+     */
+    public int advance(long nowNs) {
+        if (!started) {
+            started = true;
+            lastFrameNs = nowNs;
+            return 0;
+        }
+
+        accumulatedMs += (nowNs - lastFrameNs) / NS_PER_MS;
+        lastFrameNs = nowNs;
+
+        //Time beyond what the catch-up cap allows is dropped
+        accumulatedMs = Math.min(accumulatedMs, stepMs * (maxStepsPerFrame + 1));
+
+        int steps = Math.min((int) (accumulatedMs / stepMs), maxStepsPerFrame);
+        accumulatedMs -= steps * stepMs;
+        return steps;
+    }
+
+    /**
+     * Forgets the time passed so far, such as after a loading or menu screen.
+     */
+    public void reset() {
+        accumulatedMs = 0;
+        started = false;
+    }
+
+    //Get methods
+    /**
+     *
+     * @return
+     * The length of one update in ms.
+     */
+    public double getStepMs() {
+        return stepMs;
+    }
+    /**
+     *
+     * @return
+     * How far the time left over is into the next update, from 0 to 1.
+     * Used to draw objects between their last two positions.
+     */
+    public double getAlpha() {
+        return Math.min(accumulatedMs / stepMs, 1);
+    }
+}
@@ -0,0 +1,32 @@
+import bagel.Font;
+
+import java.util.HashMap;
+
+/**
+ * Keeps one loaded font per file and size, so a font file is only read and rasterised once.
+ * Fonts are only meant to be used on the thread that draws the game.
+ */
+public class FontCache {
+    private final static HashMap<String, HashMap<Integer, Font>> FONTS = new HashMap<>();
+
+    private FontCache() {}
+
+    /**
+     * Gets a font, loading it the first time it is asked for.
+     * @param filepath
+     * The path to the font file.
+     * @param fontSize
+     * The size of the font.
+     * @return
+     * The font shared by every caller asking for the same file and size.
+     */
+    public static Font getFont(String filepath, int fontSize) {
+        HashMap<Integer, Font> sizes = FONTS.computeIfAbsent(filepath, path -> new HashMap<>());
+        Font font = sizes.get(fontSize);
+        if (font == null) {
+            font = new Font(filepath, fontSize);
+            sizes.put(fontSize, font);
+        }
+        return font;
+    }
+}
@@ -0,0 +1,175 @@
+import bagel.Font;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Times the phases of a frame into one LatencyHistogram per phase.
+ * Timing is off until it is toggled on. While it is off, start returns 0 without reading the clock
+ * and stop returns straight away, so the calls can stay in the game loop.
+ * The timings are drawn as an overlay and written to logs/frame-timings.txt when the game exits.
+ */
+public class FrameProfiler {
+    /**
+     * A whole call of ShadowDimension.update.
+     */
+    public final static int FRAME = 0;
+    /**
+     * World.drawWorld.
+     */
+    public final static int DRAW_WORLD = 1;
+    /**
+     * Player.updatePlayer.
+     */
+    public final static int UPDATE_PLAYER = 2;
+    /**
+     * Every phase of the enemy update in one world update.
+     */
+    public final static int UPDATE_ENEMIES = 3;
+    /**
+     * One enemy planning its move and checking it for collisions.
+     */
+    public final static int ENEMY_MOVE = 4;
+    /**
+     * The file the timings are written to when the game exits.
+     */
+    public final static Path REPORT_FILE = Paths.get("logs", "frame-timings.txt");
+
+    private final static String[] PHASE_NAMES = {"frame", "drawWorld", "updatePlayer", "updateEnemies", "enemyMove"};
+    private final static LatencyHistogram[] HISTOGRAMS = newHistograms();
+
+    private final static String FONT_FILEPATH = "res/frostbite.ttf";
+    private final static int OVERLAY_FONT_SIZE = 16;
+    private final static double OVERLAY_LINE_HEIGHT = 18;
+    private final static double OVERLAY_REFRESH_MS = 500;
+    private final static double NS_PER_MS = 1e6;
+    private final static double NS_PER_US = 1e3;
+
+    private static volatile boolean enabled = false;
+    private static boolean reportScheduled = false;
+
+    //The overlay only formats its lines twice a second
+    private final static String[] OVERLAY_LINES = new String[PHASE_NAMES.length + 1];
+    private static long overlayRefreshedNs = 0;
+
+    private FrameProfiler() {}
+
+    /**
+     * Starts timing a phase.
+     * @return
+     * The time the phase started in ns, or 0 if timing is off.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Stops timing a phase and records how long it took.
+     * @param phase
+     * The phase being timed, one of the phase constants of this class.
+     * @param startNs
+     * The time returned by start when the phase started.
+     */
+    public static void stop(int phase, long startNs) {
+        if (startNs != 0)
+            HISTOGRAMS[phase].record(System.nanoTime() - startNs);
+    }
+
+    /**
+     * Turns timing on or off. The timings recorded so far are kept.
+     */
+    public static synchronized void toggle() {
+        enabled = !enabled;
+        if (enabled && !reportScheduled) {
+            reportScheduled = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(FrameProfiler::writeReport, "frame-profiler-report"));
+        }
+    }
+
+    /**
+     * Draws the p50, p99 and max of every phase, if timing is on.
+     * @param xCoordinate
+     * X coordinate of the left of the overlay.
+     * @param yCoordinate
+     * Y coordinate of the first line of the overlay.
+     */
+    public static void drawOverlay(double xCoordinate, double yCoordinate) {
+        if (!enabled)
+            return;
+
+        long nowNs = System.nanoTime();
+        if (OVERLAY_LINES[0] == null || nowNs - overlayRefreshedNs > OVERLAY_REFRESH_MS * NS_PER_MS) {
+            OVERLAY_LINES[0] = String.format("%-14s %9s %9s %9s", "us", "p50", "p99", "max");
+            for (int phase = 0; phase < PHASE_NAMES.length; phase++)
+                OVERLAY_LINES[phase + 1] = formatPhase(phase);
+            overlayRefreshedNs = nowNs;
+        }
+
+        Font font = FontCache.getFont(FONT_FILEPATH, OVERLAY_FONT_SIZE);
+        for (int line = 0; line < OVERLAY_LINES.length; line++)
+            font.drawString(OVERLAY_LINES[line], xCoordinate, yCoordinate + line * OVERLAY_LINE_HEIGHT);
+    }
+
+    /**
+     * Prints the count, p50, p99 and max of every phase.
+     * @param out
+     * The stream the timings are printed to.
+     */
+    public static void printReport(PrintStream out) {
+        out.printf("%-14s %10s %9s %9s %9s%n", "phase (us)", "count", "p50", "p99", "max");
+        for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+            LatencyHistogram histogram = HISTOGRAMS[phase];
+            out.printf("%-14s %10d %9.1f %9.1f %9.1f%n", PHASE_NAMES[phase], histogram.getCount(),
+                    histogram.getPercentile(50) / NS_PER_US,
+                    histogram.getPercentile(99) / NS_PER_US,
+                    histogram.getMax() / NS_PER_US);
+        }
+    }
+
+    //Get methods
+    /**
+     *
+     * @return
+     * Whether timing is on.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    /**
+     *
+     * @return
+     * The timings of a phase.
+     */
+    public static LatencyHistogram getHistogram(int phase) {
+        return HISTOGRAMS[phase];
+    }
+
+    private static String formatPhase(int phase) {
+        LatencyHistogram histogram = HISTOGRAMS[phase];
+        return String.format("%-14s %9.1f %9.1f %9.1f", PHASE_NAMES[phase],
+                histogram.getPercentile(50) / NS_PER_US,
+                histogram.getPercentile(99) / NS_PER_US,
+                histogram.getMax() / NS_PER_US);
+    }
+
+    private static void writeReport() {
+        try {
+            Files.createDirectories(REPORT_FILE.toAbsolutePath().getParent());
+            try (PrintStream out = new PrintStream(Files.newOutputStream(REPORT_FILE))) {
+                printReport(out);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write frame timings: " + e);
+        }
+    }
+
+    private static LatencyHistogram[] newHistograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[PHASE_NAMES.length];
+        for (int phase = 0; phase < histograms.length; phase++)
+            histograms[phase] = new LatencyHistogram();
+        return histograms;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * The position, cell size and number of cells of a UniformGridIndex.
+ * Compiled levels store the layout so the index does not have to be sized from the objects when loading.
+ */
+public class GridLayout {
+    private final double originX, originY;
+    private final double cellSize;
+    private final int columns, rows;
+
+
+    /**
+     * Instantiates the layout.
+     * @param originX
+     * X coordinate of the left edge of the first column.
+     * @param originY
+     * Y coordinate of the top edge of the first row.
+     * @param cellSize
+     * The width and height of a cell.
+     * @param columns
+     * The number of columns, at least 1.
+     * @param rows
+     * The number of rows, at least 1.
+     */
+    public GridLayout(double originX, double originY, double cellSize, int columns, int rows) {
+        if (!(cellSize > 0) || columns < 1 || rows < 1)
+            throw new IllegalArgumentException("Invalid grid layout: cell size " + cellSize + ", "
+                    + columns + " columns, " + rows + " rows");
+
+        this.originX = originX;
+        this.originY = originY;
+        this.cellSize = cellSize;
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    //Get methods
+    /**
+     *
+     * @return
+     * X coordinate of the left edge of the first column.
+     */
+    public double getOriginX() {
+        return originX;
+    }
+    /**
+     *
+     * @return
+     * Y coordinate of the top edge of the first row.
+     */
+    public double getOriginY() {
+        return originY;
+    }
+    /**
+     *
+     * @return
+     * The width and height of a cell.
+     */
+    public double getCellSize() {
+        return cellSize;
+    }
+    /**
+     *
+     * @return
+     * The number of columns.
+     */
+    public int getColumns() {
+        return columns;
+    }
+    /**
+     *
+     * @return
+     * The number of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Steps a level as fast as possible without opening a window or drawing anything.
+ * Used for soak tests, balance runs and benchmarks.
+ * It also replays an InputRecording made by the game, checking the world's hash after every update.
+ * Usage: HeadlessSimulation levelCsv [ticks] [timescale] [seed]
+ *        HeadlessSimulation --replay recording
+ */
+public class HeadlessSimulation {
+    private final static double TICK_MS = 1000/60.0;
+    private final static int DEFAULT_TICKS = 100000;
+    private final static int LEVEL_NUM = 0;
+
+    private final static String REPLAY_OPTION = "--replay";
+
+    private final World world;
+
+    private long ticks = 0;
+
+
+    /**
+     * Instantiates the simulation.
+     * @param world
+     * The world being simulated.
+     * @param timescale
+     * The game's timescale. Affects the enemies' speed.
+     */
+    public HeadlessSimulation(World world, int timescale) {
+        this.world = world;
+        world.setTimescale(timescale);
+    }
+
+    /**
+     * The entry point for the program.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: HeadlessSimulation levelCsv [ticks] [timescale] [seed]");
+            System.out.println("       HeadlessSimulation " + REPLAY_OPTION + " recording");
+            return;
+        }
+        if (args[0].equals(REPLAY_OPTION)) {
+            if (!replay(InputRecording.read(Paths.get(args[1]))))
+                System.exit(1);
+            return;
+        }
+
+        int maxTicks = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_TICKS;
+        int timescale = (args.length > 2) ? Integer.parseInt(args[2]) : 0;
+
+        long startNs = System.nanoTime();
+        World world = (args.length > 3) ? new World(LEVEL_NUM, args[0], Long.parseLong(args[3])) :
+                new World(LEVEL_NUM, args[0]);
+        HeadlessSimulation simulation = new HeadlessSimulation(world, timescale);
+        long loadedNs = System.nanoTime();
+        simulation.run(maxTicks);
+        long finishedNs = System.nanoTime();
+
+        double runMs = (finishedNs - loadedNs) / 1e6;
+        System.out.printf("Loaded %d objects in %.1f ms%n",
+                simulation.world.getObjectCount(), (loadedNs - startNs) / 1e6);
+        System.out.printf("Simulated %d ticks in %.1f ms (%.0f ticks/s)%n",
+                simulation.getTicks(), runMs, simulation.getTicks() / (runMs / 1000));
+        if (simulation.world.hasLost())
+            System.out.println("The player lost.");
+        else if (simulation.world.hasWon())
+            System.out.println("The player won.");
+    }
+
+    /**
+     * Replays every level of a recording, giving each update the keys recorded for it,
+     * and checks the world hashes as it did when it was recorded after every update.
+     * @param recording
+     * The recording replayed.
+     * @return
+     * Whether every level was replayed without its state diverging.
+     * @throws IOException
+     * If a recorded level file cannot be read.
+     */
+    public static boolean replay(InputRecording recording) throws IOException {
+        boolean matched = true;
+        for (RecordedLevel recorded : recording.getLevels()) {
+            World world = new World(recorded.getLevelNum(), recorded.getLevelFilepath(), recorded.getSeed());
+            world.setTimescale(recorded.getTimescale());
+            long startNs = System.nanoTime();
+
+            int tick = 0;
+            for (; tick < recorded.getTickCount(); tick++) {
+                world.controlPlayer(recorded.getKeys(tick));
+                world.updateWorld(recorded.getStepMs());
+                if (RecordedLevel.foldHash(world.stateHash()) != recorded.getHash(tick))
+                    break;
+            }
+
+            double runMs = (System.nanoTime() - startNs) / 1e6;
+            if (tick < recorded.getTickCount()) {
+                matched = false;
+                System.out.printf("Level %d (%s) diverged at tick %d of %d%n", recorded.getLevelNum(),
+                        recorded.getLevelFilepath(), tick, recorded.getTickCount());
+            } else {
+                System.out.printf("Level %d (%s) replayed %d ticks in %.1f ms (%.0f ticks/s)%n", recorded.getLevelNum(),
+                        recorded.getLevelFilepath(), tick, runMs, tick / (runMs / 1000));
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * Steps the world until the level is over or a number of ticks have passed.
+     * @param maxTicks
+     * The maximum number of ticks simulated.
+     */
+    public void run(int maxTicks) {
+        for (int tick = 0; tick < maxTicks && !world.hasWon() && !world.hasLost(); tick++)
+            step();
+    }
+
+    /**
+     * Steps the world by one tick.
+     */
+    public void step() {
+        world.updateWorld(TICK_MS);
+        ticks++;
+    }
+
+    //Get methods
+    /**
+     *
+     * @return
+     * The world being simulated.
+     */
+    public World getWorld() {
+        return world;
+    }
+    /**
+     *
+     * @return
+     * The number of ticks simulated so far.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+}
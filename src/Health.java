@@ -1,5 +1,4 @@
 import bagel.DrawOptions;
-import bagel.Font;
 import bagel.util.Colour;
 
 /**
@@ -13,10 +12,16 @@ public class Health {
     private final static Colour HEALTHY_HP = new Colour(0, 0.8, 0.2); //green
     private final static Colour WOUNDED_HP = new Colour(0.9, 0.6, 0); //orange
     private final static Colour DANGER_HP = new Colour(1, 0, 0);      //red
+    private final static DrawOptions HEALTHY_OPTION = new DrawOptions().setBlendColour(HEALTHY_HP);
+    private final static DrawOptions WOUNDED_OPTION = new DrawOptions().setBlendColour(WOUNDED_HP);
+    private final static DrawOptions DANGER_OPTION = new DrawOptions().setBlendColour(DANGER_HP);
+    private final static int MAX_PERCENT = 100;
+    private final static String[] PERCENT_LABELS = createPercentLabels();
 
     private final double maxHp;
 
-    private Colour currentColour = HEALTHY_HP;
+    private DrawOptions colourOption = HEALTHY_OPTION;
+    private String label = PERCENT_LABELS[MAX_PERCENT];
     private double value;
 
 
@@ -37,15 +42,30 @@ public class Health {
      * The amount being deducted.
      */
     public void takeDmg(int dmgTaken) {
-        if ((value - MIN_HP) > dmgTaken) {
+        double previousValue = value;
+        if ((value - MIN_HP) > dmgTaken)
             value -= dmgTaken;
-            setCurrentColour();
-        } else {
+        else
             value = MIN_HP;
+
+        //The colour and label are only worked out again when the value changes
+        if (value != previousValue) {
             setCurrentColour();
+            label = PERCENT_LABELS[(int) ((value/maxHp)*MAX_PERCENT)];
         }
     }
 
+    /**
+     * Sets the health point, such as when a saved state is restored.
+     * @param value
+     * The health point, from the minimum to the maximum.
+     */
+    public void setValue(int value) {
+        this.value = Math.max(MIN_HP, Math.min(value, maxHp));
+        setCurrentColour();
+        label = PERCENT_LABELS[(int) ((this.value/maxHp)*MAX_PERCENT)];
+    }
+
     /**
      * Draw the numerical value of the health.
      * @param fontSize
@@ -56,22 +76,25 @@ public class Health {
      * Y coordinate of the place it is drawn.
      */
     public void drawHp(int fontSize, double xCoordinate, double yCoordinate) {
-        Font hpFont = new Font(FONT_FILEPATH, fontSize);
-        int percent = (int) ((value/maxHp)*100);
-        DrawOptions colourOption =
-                new DrawOptions().setBlendColour(currentColour);
-
-        hpFont.drawString(
-                percent + "%", xCoordinate, yCoordinate, colourOption);
+        FontCache.getFont(FONT_FILEPATH, fontSize).drawString(
+                label, xCoordinate, yCoordinate, colourOption);
     }
 
     private void setCurrentColour() {
         if (value/maxHp < DANGER_VALUE)
-            currentColour = DANGER_HP;
+            colourOption = DANGER_OPTION;
         else if (value/maxHp < WOUNDED_VALUE)
-            currentColour = WOUNDED_HP;
+            colourOption = WOUNDED_OPTION;
         else
-            currentColour = HEALTHY_HP;
+            colourOption = HEALTHY_OPTION;
+    }
+
+    //Labels for every percentage from 0% to 100%, shared by every health
+    private static String[] createPercentLabels() {
+        String[] labels = new String[MAX_PERCENT + 1];
+        for (int percent = 0; percent <= MAX_PERCENT; percent++)
+            labels[percent] = percent + "%";
+        return labels;
     }
 
     //Get methods
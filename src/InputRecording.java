@@ -0,0 +1,132 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+
+/**
+ * A recording of a play session: for every level played, the level file, its seed and starting timescale,
+ * the keys that acted on each update and the hash of the world after each update.
+ * A world built again from the same file and seed and given the same keys must hash the same,
+ * which is how HeadlessSimulation checks a replay.
+ *
+ * File layout, every number big-endian:
+ * header      int MAGIC, short VERSION, short number of levels
+ * each level  int level number, the level file path as modified UTF-8, long seed, int timescale,
+ *             double ms per update, int number of updates, a byte of keys per update, an int hash per update
+ */
+public class InputRecording {
+    /**
+     * The first four bytes of every recording, "SDRP".
+     */
+    public final static int MAGIC = 0x53445250;
+    /**
+     * The version of the layout written by this game.
+     */
+    public final static short VERSION = 1;
+
+    private final ArrayList<RecordedLevel> levels = new ArrayList<>();
+
+
+    /**
+     * Starts recording a level. Updates are recorded into the level returned.
+     * @param world
+     * The level being recorded, before its first update.
+     * @param stepMs
+     * The amount of time that passes for each update in ms.
+     * @return
+     * The level the updates are recorded into.
+     */
+    public synchronized RecordedLevel startLevel(World world, double stepMs) {
+        RecordedLevel level = new RecordedLevel(world.getLevelNum(), world.getLevelFilepath(), world.getSeed(),
+                world.getTimescale(), stepMs);
+        levels.add(level);
+        return level;
+    }
+
+    /**
+     * Writes the recording. The file is replaced only once it is completely written.
+     * @param file
+     * The file written to.
+     * @throws IOException
+     * If the file cannot be written.
+     */
+    public synchronized void write(Path file) throws IOException {
+        Path absoluteFile = file.toAbsolutePath();
+        Files.createDirectories(absoluteFile.getParent());
+        Path partFile = absoluteFile.resolveSibling(absoluteFile.getFileName() + ".part");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partFile)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(levels.size());
+            for (RecordedLevel level : levels) {
+                out.writeInt(level.getLevelNum());
+                out.writeUTF(level.getLevelFilepath());
+                out.writeLong(level.getSeed());
+                out.writeInt(level.getTimescale());
+                out.writeDouble(level.getStepMs());
+                out.writeInt(level.getTickCount());
+                for (int tick = 0; tick < level.getTickCount(); tick++)
+                    out.writeByte(level.getKeys(tick));
+                for (int tick = 0; tick < level.getTickCount(); tick++)
+                    out.writeInt(level.getHash(tick));
+            }
+        }
+        Files.move(partFile, absoluteFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads a recording.
+     * @param file
+     * The file read.
+     * @return
+     * The recording.
+     * @throws IOException
+     * If the file cannot be read or is not a recording this game can replay.
+     */
+    public static InputRecording read(Path file) throws IOException {
+        InputRecording recording = new InputRecording();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException(file + " is not an input recording");
+            short version = in.readShort();
+            if (version != VERSION)
+                throw new IOException(file + " has unsupported version " + version);
+
+            int levelCount = in.readUnsignedShort();
+            for (int i = 0; i < levelCount; i++) {
+                int levelNum = in.readInt();
+                String levelFilepath = in.readUTF();
+                long seed = in.readLong();
+                int timescale = in.readInt();
+                double stepMs = in.readDouble();
+                int tickCount = in.readInt();
+                if (tickCount < 0)
+                    throw new IOException(file + " has a level with " + tickCount + " updates");
+
+                byte[] keys = new byte[tickCount];
+                in.readFully(keys);
+                RecordedLevel level = new RecordedLevel(levelNum, levelFilepath, seed, timescale, stepMs, tickCount);
+                for (int tick = 0; tick < tickCount; tick++)
+                    level.recordFolded(keys[tick], in.readInt());
+                recording.levels.add(level);
+            }
+        }
+        return recording;
+    }
+
+    //Get methods
+    /**
+     *
+     * @return
+     * The levels recorded, in the order they were played.
+     */
+    public ArrayList<RecordedLevel> getLevels() {
+        return levels;
+    }
+}
@@ -0,0 +1,104 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts how long something took, in buckets that grow with the duration so every bucket is within
+ * 12.5% of the durations it holds. Recording only increments counters, so it never allocates
+ * and can be done from several threads at once.
+ */
+public class LatencyHistogram {
+    private final static int SUB_BUCKET_BITS = 3;
+    private final static int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    //Durations below this have a bucket each
+    private final static int EXACT_LIMIT = SUB_BUCKETS * 2;
+    private final static int BUCKETS = EXACT_LIMIT + (Long.SIZE - 1 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+
+    /**
+     * Records one duration.
+     * @param durationNs
+     * The duration in ns. Negative durations are counted as 0.
+     */
+    public void record(long durationNs) {
+        durationNs = Math.max(durationNs, 0);
+        counts.incrementAndGet(bucket(durationNs));
+        count.incrementAndGet();
+
+        long currentMax = max.get();
+        while (durationNs > currentMax && !max.compareAndSet(currentMax, durationNs))
+            currentMax = max.get();
+    }
+
+    /**
+     * Forgets every duration recorded.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+        count.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Finds the duration that a share of the recorded durations are at most.
+     * @param percentile
+     * The share of durations, from 0 to 100.
+     * @return
+     * The middle of the bucket holding the percentile in ns, or 0 if nothing is recorded.
+     */
+    public long getPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank)
+                return Math.min(bucketMiddle(bucket), max.get());
+        }
+        return max.get();
+    }
+
+    //Get methods
+    /**
+     *
+     * @return
+     * The number of durations recorded.
+     */
+    public long getCount() {
+        return count.get();
+    }
+    /**
+     *
+     * @return
+     * The longest duration recorded in ns.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    private static int bucket(long durationNs) {
+        if (durationNs < EXACT_LIMIT)
+            return (int) durationNs;
+
+        int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(durationNs);
+        int subBucket = (int) (durationNs >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return EXACT_LIMIT + (magnitude - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long bucketMiddle(int bucket) {
+        if (bucket < EXACT_LIMIT)
+            return bucket;
+
+        int magnitude = (bucket - EXACT_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int subBucket = (bucket - EXACT_LIMIT) % SUB_BUCKETS;
+        long width = 1L << (magnitude - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + subBucket) * width + width / 2;
+    }
+}
@@ -0,0 +1,209 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Compiles .csv levels into the .sdlvl format read by BinaryLevelReader.
+ * The .csv levels stay the ones that are edited, the compiled levels only make loading faster.
+ * Entries are grouped by type, so objects of a compiled level are created grouped by type
+ * instead of in the order of the .csv level.
+ * Usage: LevelCompiler levelCsv [outputFile] [--no-grid]
+ */
+public class LevelCompiler implements LevelEntryHandler {
+    private final static String NO_GRID_OPTION = "--no-grid";
+    private final static int INITIAL_RECORD_CAPACITY = 16;
+
+    //The x and y coordinates of the entries of each type, one after the other
+    private final int[][] records = new int[LevelReader.ENTRY_TYPES.length][INITIAL_RECORD_CAPACITY * 2];
+    private final int[] recordCounts = new int[LevelReader.ENTRY_TYPES.length];
+    private int left, top, right, bot;
+    private boolean hasTopLeft = false, hasBottomRight = false;
+
+
+    private LevelCompiler() {}
+
+    /**
+     * The entry point for the program.
+     */
+    public static void main(String[] args) throws IOException {
+        boolean withGrid = true;
+        String csvFilepath = null, outputFilepath = null;
+        for (String arg : args) {
+            if (arg.equals(NO_GRID_OPTION))
+                withGrid = false;
+            else if (csvFilepath == null)
+                csvFilepath = arg;
+            else
+                outputFilepath = arg;
+        }
+
+        if (csvFilepath == null) {
+            System.out.println("Usage: LevelCompiler levelCsv [outputFile] [" + NO_GRID_OPTION + "]");
+            return;
+        }
+        if (outputFilepath == null)
+            outputFilepath = BinaryLevelReader.compiledPath(csvFilepath);
+
+        int recordCount = compile(csvFilepath, outputFilepath, withGrid);
+        System.out.println("Compiled " + recordCount + " entries into " + outputFilepath);
+    }
+
+    /**
+     * Compiles a .csv level.
+     * @param csvFilepath
+     * The path to the .csv level.
+     * @param outputFilepath
+     * The path the compiled level is written to.
+     * @param withGrid
+     * Whether the layout of the spatial index is stored in the compiled level.
+     * @return
+     * The number of entries written, not counting the corners of the world.
+     * @throws IOException
+     * If either file cannot be read or written.
+     * @throws IllegalStateException
+     * If the level is missing the player or a corner point of the world.
+     */
+    public static int compile(String csvFilepath, String outputFilepath, boolean withGrid) throws IOException {
+        LevelCompiler compiler = new LevelCompiler();
+        LevelReader.read(csvFilepath, compiler);
+        compiler.checkError();
+
+        //The layout World works out when the level gives none, without building the world
+        GridLayout layout = null;
+        if (withGrid)
+            layout = UniformGridIndex.layout(compiler.indexArea(), UniformGridIndex.DEFAULT_CELL_SIZE);
+        return compiler.write(outputFilepath, layout);
+    }
+
+    @Override
+    public void resolveEntry(String type, int xCoordinate, int yCoordinate) {
+        switch (type) {
+            case("TopLeft"):
+                left = xCoordinate;
+                top = yCoordinate;
+                hasTopLeft = true;
+                return;
+            case("BottomRight"):
+                right = xCoordinate;
+                bot = yCoordinate;
+                hasBottomRight = true;
+                return;
+            default:
+                break;
+        }
+
+        int typeNum = typeNum(type);
+        //The world only keeps the last player entry
+        if (type.equals(Player.PLAYER_NAME))
+            recordCounts[typeNum] = 0;
+        if (recordCounts[typeNum] * 2 == records[typeNum].length)
+            records[typeNum] = Arrays.copyOf(records[typeNum], records[typeNum].length * 2);
+
+        records[typeNum][recordCounts[typeNum] * 2] = xCoordinate;
+        records[typeNum][recordCounts[typeNum] * 2 + 1] = yCoordinate;
+        recordCounts[typeNum]++;
+    }
+
+    //Checks the level is complete, as World does
+    private void checkError() {
+        if (recordCounts[typeNum(Player.PLAYER_NAME)] == 0)
+            throw new IllegalStateException("MISSING PLAYER!");
+        else if (!hasTopLeft || !hasBottomRight)
+            throw new IllegalStateException("MISSING A CORNER POINT!");
+    }
+
+    //Covers the world and every object in it, sized by the sprite each object is created with
+    private Boundary indexArea() {
+        Boundary area = new Boundary(top, bot, left, right);
+        for (int typeNum = 0; typeNum < recordCounts.length; typeNum++) {
+            if (recordCounts[typeNum] == 0)
+                continue;
+
+            Sprite sprite = spawnSprite(LevelReader.ENTRY_TYPES[typeNum]);
+            for (int i = 0; i < recordCounts[typeNum]; i++) {
+                int xCoordinate = records[typeNum][i * 2], yCoordinate = records[typeNum][i * 2 + 1];
+                area.setTopBound(Math.min(area.getTopBound(), yCoordinate));
+                area.setBotBound(Math.max(area.getBotBound(), yCoordinate + sprite.getHeight()));
+                area.setLeftBound(Math.min(area.getLeftBound(), xCoordinate));
+                area.setRightBound(Math.max(area.getRightBound(), xCoordinate + sprite.getWidth()));
+            }
+        }
+
+        return area;
+    }
+
+    private int write(String outputFilepath, GridLayout layout) throws IOException {
+        int groupCount = 0;
+        long recordCount = 0;
+        for (int count : recordCounts) {
+            if (count > 0)
+                groupCount++;
+            recordCount += count;
+        }
+
+        long fileSize = BinaryLevelReader.HEADER_BYTES + (long) groupCount * BinaryLevelReader.GROUP_BYTES
+                + ((layout != null) ? BinaryLevelReader.GRID_LAYOUT_BYTES : 0)
+                + recordCount * BinaryLevelReader.RECORD_BYTES;
+        if (fileSize > Integer.MAX_VALUE)
+            throw new IOException(outputFilepath + ": level is too large to compile");
+
+        ByteBuffer level = ByteBuffer.allocate((int) fileSize);
+        level.putInt(BinaryLevelReader.MAGIC);
+        level.putShort(BinaryLevelReader.VERSION);
+        level.putShort((layout != null) ? BinaryLevelReader.HAS_GRID_LAYOUT : 0);
+        level.putInt(left).putInt(top).putInt(right).putInt(bot);
+        level.putInt(groupCount);
+
+        for (int typeNum = 0; typeNum < recordCounts.length; typeNum++)
+            if (recordCounts[typeNum] > 0)
+                level.putInt(typeNum).putInt(recordCounts[typeNum]);
+
+        if (layout != null) {
+            level.putDouble(layout.getOriginX()).putDouble(layout.getOriginY()).putDouble(layout.getCellSize());
+            level.putInt(layout.getColumns()).putInt(layout.getRows());
+        }
+
+        for (int typeNum = 0; typeNum < recordCounts.length; typeNum++) {
+            int coordinateCount = recordCounts[typeNum] * 2;
+            level.asIntBuffer().put(records[typeNum], 0, coordinateCount);
+            level.position(level.position() + coordinateCount * Integer.BYTES);
+        }
+        level.flip();
+
+        try (FileChannel outputFile = FileChannel.open(Paths.get(outputFilepath), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (level.hasRemaining())
+                outputFile.write(level);
+        }
+        return (int) recordCount;
+    }
+
+    private static Sprite spawnSprite(String type) {
+        switch (type) {
+            case(Player.PLAYER_NAME):
+                return Player.getSpawnSprite();
+            case("Wall"):
+                return Obstacle.getSpawnSprite(false);
+            case("Tree"):
+                return Obstacle.getSpawnSprite(true);
+            case("Sinkhole"):
+                return Sinkhole.getSpawnSprite();
+            case("Demon"):
+                return Demon.getSpawnSprite();
+            case("Navec"):
+                return Navec.getSpawnSprite();
+            default:
+                throw new IllegalArgumentException("Unknown entry type " + type);
+        }
+    }
+
+    private static int typeNum(String type) {
+        for (int typeNum = 0; typeNum < LevelReader.ENTRY_TYPES.length; typeNum++)
+            if (LevelReader.ENTRY_TYPES[typeNum].equals(type))
+                return typeNum;
+        throw new IllegalArgumentException("Unknown entry type " + type);
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.Arrays;
+
+/**
+ * The entries removed from and added to a level file between two of its versions, for each entry type.
+ * Entries are compared as a multiset, so a file with the same entries in another order has no changes,
+ * and only one of two identical entries can be removed.
+ * For each type, the n-th removed entry and the n-th added entry are read as one entry that moved,
+ * both in coordinate order, which matches every move of an edit that moves one entry of a type.
+ */
+public class LevelDiff {
+    private final long[][] removed = new long[LevelReader.ENTRY_TYPES.length][];
+    private final long[][] added = new long[LevelReader.ENTRY_TYPES.length][];
+
+
+    private LevelDiff() {}
+
+    /**
+     * Compares two versions of a level, going once through the sorted entries of each type.
+     * @param before
+     * The earlier version.
+     * @param after
+     * The later version.
+     * @return
+     * The changes from the earlier version to the later one.
+     */
+    public static LevelDiff between(LevelSnapshot before, LevelSnapshot after) {
+        LevelDiff diff = new LevelDiff();
+        for (int typeNum = 0; typeNum < LevelReader.ENTRY_TYPES.length; typeNum++) {
+            long[] beforeEntries = before.getEntries(typeNum), afterEntries = after.getEntries(typeNum);
+            int beforeCount = before.getCount(typeNum), afterCount = after.getCount(typeNum);
+            long[] removedEntries = new long[beforeCount], addedEntries = new long[afterCount];
+            int removedCount = 0, addedCount = 0;
+
+            int i = 0, j = 0;
+            while (i < beforeCount || j < afterCount) {
+                if (j == afterCount || (i < beforeCount && beforeEntries[i] < afterEntries[j])) {
+                    removedEntries[removedCount++] = beforeEntries[i++];
+                } else if (i == beforeCount || afterEntries[j] < beforeEntries[i]) {
+                    addedEntries[addedCount++] = afterEntries[j++];
+                } else {
+                    i++;
+                    j++;
+                }
+            }
+
+            diff.removed[typeNum] = Arrays.copyOf(removedEntries, removedCount);
+            diff.added[typeNum] = Arrays.copyOf(addedEntries, addedCount);
+        }
+        return diff;
+    }
+
+    /**
+     * Shows if the two versions have the same entries.
+     * @return
+     * Whether nothing was removed or added.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Counts the entries removed and added.
+     * @return
+     * The number of entries removed and added, an entry that moved counting twice.
+     */
+    public int size() {
+        int size = 0;
+        for (int typeNum = 0; typeNum < removed.length; typeNum++)
+            size += removed[typeNum].length + added[typeNum].length;
+        return size;
+    }
+
+    //Get methods
+    /**
+     *
+     * @return
+     * The packed coordinates of the entries of a type that were removed, sorted.
+     */
+    public long[] getRemoved(int typeNum) {
+        return removed[typeNum];
+    }
+    /**
+     *
+     * @return
+     * The packed coordinates of the entries of a type that were added, sorted.
+     */
+    public long[] getAdded(int typeNum) {
+        return added[typeNum];
+    }
+}
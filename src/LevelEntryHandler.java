@@ -0,0 +1,16 @@
+/**
+ * Represents something that builds a level one entry at a time as the level file is read.
+ */
+public interface LevelEntryHandler {
+    /**
+     * Resolves one entry of the level.
+     * @param type
+     * The type of the entry, one of the names in LevelReader.ENTRY_TYPES.
+     * The same String instance is passed for every entry of a type.
+     * @param xCoordinate
+     * X coordinate of the entry.
+     * @param yCoordinate
+     * Y coordinate of the entry.
+     */
+    void resolveEntry(String type, int xCoordinate, int yCoordinate);
+}
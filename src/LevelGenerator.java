@@ -0,0 +1,266 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Generates .csv levels of any size, for measuring the game on worlds far larger than the shipped ones.
+ * The world is a grid of cells, each large enough for any object, and each cell holds a wall, tree, sinkhole
+ * or demon with a chosen probability, so objects never start overlapping.
+ * The player starts in the top left corner with the cells around it left empty, and Navec waits in the
+ * bottom right corner.
+ * Bands of rows are generated in parallel, each from its own generator split off the seed in order,
+ * so a seed always gives the same level whatever the number of threads.
+ * Usage: LevelGenerator outputCsv objectCount [--seed seed] [--density density]
+ *        [--mix walls,trees,sinkholes,demons] [--compile]
+ */
+public class LevelGenerator {
+    /**
+     * The width and height of a cell.
+     */
+    public final static int CELL_SIZE = 80;
+    /**
+     * The share of cells that hold an object when no density is given.
+     */
+    public final static double DEFAULT_DENSITY = 0.5;
+
+    private final static String SEED_OPTION = "--seed";
+    private final static String DENSITY_OPTION = "--density";
+    private final static String MIX_OPTION = "--mix";
+    private final static String COMPILE_OPTION = "--compile";
+
+    //The types placed in cells and their default weights, in the order of the weights given with --mix
+    private final static String[] CELL_TYPES = {"Wall", "Tree", "Sinkhole", "Demon"};
+    private final static double[] DEFAULT_MIX = {4, 3, 1.5, 1.5};
+
+    //Objects are shifted inside their cell by up to the room left by the largest object
+    private final static int MAX_OBJECT_SIZE = 66;
+    private final static int MAX_SHIFT = CELL_SIZE - MAX_OBJECT_SIZE;
+    //Cells this close to the player's cell in both directions stay empty
+    private final static int CLEAR_CELLS = 3;
+    private final static int PLAYER_WIDTH = 40;
+    private final static int PLAYER_HEIGHT = 59;
+    private final static int PLAYER_COORDINATE = 10;
+    private final static double WORLD_ASPECT = 4.0/3;
+
+    private final static int ROWS_PER_BAND = 32;
+    //Bands generated before they are written, which bounds the memory used by huge levels
+    private final static int BANDS_PER_BATCH = 4 * Runtime.getRuntime().availableProcessors();
+
+    private final int columns, rows;
+    private final double density;
+    //Cumulative weights of the cell types, from 0 to 1
+    private final double[] mixThresholds = new double[CELL_TYPES.length];
+    private final SplittableRandom[] bandRandoms;
+    private final long[] typeCounts = new long[CELL_TYPES.length];
+
+
+    /**
+     * Instantiates a generator for levels of about a number of objects.
+     * @param objectCount
+     * The number of walls, trees, sinkholes and demons wanted, about which the level has.
+     * @param density
+     * The share of cells that hold an object, above 0 and at most 1.
+     * @param mix
+     * The weights of walls, trees, sinkholes and demons, in that order.
+     * @param seed
+     * The seed of the level.
+     * @throws IllegalArgumentException
+     * If the number of objects, the density or the weights are out of range.
+     */
+    public LevelGenerator(long objectCount, double density, double[] mix, long seed) {
+        if (objectCount < 0)
+            throw new IllegalArgumentException("The number of objects cannot be negative");
+        if (!(density > 0 && density <= 1))
+            throw new IllegalArgumentException("The density must be above 0 and at most 1");
+        if (mix.length != CELL_TYPES.length)
+            throw new IllegalArgumentException("The mix needs a weight for each of walls, trees, sinkholes and demons");
+
+        double totalWeight = 0;
+        for (double weight : mix) {
+            if (!(weight >= 0))
+                throw new IllegalArgumentException("Weights cannot be negative");
+            totalWeight += weight;
+        }
+        if (totalWeight <= 0)
+            throw new IllegalArgumentException("At least one weight must be above 0");
+
+        double cumulativeWeight = 0;
+        for (int typeNum = 0; typeNum < mix.length; typeNum++) {
+            cumulativeWeight += mix[typeNum];
+            mixThresholds[typeNum] = cumulativeWeight / totalWeight;
+        }
+
+        //The corner cells kept clear are added on top of the cells that fill with objects
+        long cellCount = (long) Math.ceil(objectCount / density) + (long) CLEAR_CELLS * CLEAR_CELLS + 1;
+        columns = Math.max(CLEAR_CELLS + 1, (int) Math.ceil(Math.sqrt(cellCount * WORLD_ASPECT)));
+        rows = Math.max(CLEAR_CELLS + 1, (int) ((cellCount + columns - 1) / columns));
+        if ((long) columns * CELL_SIZE > Integer.MAX_VALUE || (long) rows * CELL_SIZE > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many objects to fit in a level");
+        this.density = density;
+
+        SplittableRandom random = new SplittableRandom(seed);
+        bandRandoms = new SplittableRandom[(rows + ROWS_PER_BAND - 1) / ROWS_PER_BAND];
+        for (int band = 0; band < bandRandoms.length; band++)
+            bandRandoms[band] = random.split();
+    }
+
+    /**
+     * The entry point for the program.
+     */
+    public static void main(String[] args) throws IOException {
+        String outputFilepath = null;
+        long objectCount = -1;
+        long seed = System.nanoTime();
+        double density = DEFAULT_DENSITY;
+        double[] mix = DEFAULT_MIX;
+        boolean compile = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals(COMPILE_OPTION))
+                compile = true;
+            else if (args[i].equals(SEED_OPTION) && i + 1 < args.length)
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals(DENSITY_OPTION) && i + 1 < args.length)
+                density = Double.parseDouble(args[++i]);
+            else if (args[i].equals(MIX_OPTION) && i + 1 < args.length)
+                mix = parseMix(args[++i]);
+            else if (outputFilepath == null)
+                outputFilepath = args[i];
+            else
+                objectCount = Long.parseLong(args[i]);
+        }
+
+        if (outputFilepath == null || objectCount < 0) {
+            System.out.println("Usage: LevelGenerator outputCsv objectCount [" + SEED_OPTION + " seed] [" +
+                    DENSITY_OPTION + " density] [" + MIX_OPTION + " walls,trees,sinkholes,demons] [" +
+                    COMPILE_OPTION + "]");
+            return;
+        }
+
+        long startNs = System.nanoTime();
+        LevelGenerator generator = new LevelGenerator(objectCount, density, mix, seed);
+        long written = generator.write(outputFilepath);
+        System.out.printf("Generated %d objects (%s) on %d x %d cells into %s in %.1f ms%n", written,
+                generator.describeCounts(), generator.columns, generator.rows, outputFilepath,
+                (System.nanoTime() - startNs) / 1e6);
+
+        if (compile) {
+            String compiledFilepath = BinaryLevelReader.compiledPath(outputFilepath);
+            LevelCompiler.compile(outputFilepath, compiledFilepath, true);
+            System.out.println("Compiled into " + compiledFilepath);
+        }
+    }
+
+    /**
+     * Generates the level and writes it.
+     * @param outputFilepath
+     * The path the .csv level is written to.
+     * @return
+     * The number of walls, trees, sinkholes and demons written.
+     * @throws IOException
+     * If the file cannot be written.
+     */
+    public long write(String outputFilepath) throws IOException {
+        Arrays.fill(typeCounts, 0);
+        try (FileChannel outputFile = FileChannel.open(Paths.get(outputFilepath), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(outputFile, Player.PLAYER_NAME + "," + PLAYER_COORDINATE + "," + PLAYER_COORDINATE + "\n");
+
+            for (int batchStart = 0; batchStart < bandRandoms.length; batchStart += BANDS_PER_BATCH) {
+                int batchEnd = Math.min(batchStart + BANDS_PER_BATCH, bandRandoms.length);
+                byte[][] bands = IntStream.range(batchStart, batchEnd).parallel()
+                        .mapToObj(this::generateBand)
+                        .toArray(byte[][]::new);
+                for (byte[] band : bands)
+                    writeFully(outputFile, band);
+            }
+
+            writeFully(outputFile, "Navec," + cellLeft(columns - 1) + "," + cellTop(rows - 1) + "\n" +
+                    "TopLeft,0,0\n" +
+                    "BottomRight," + (columns * CELL_SIZE - PLAYER_WIDTH) + "," + (rows * CELL_SIZE - PLAYER_HEIGHT) + "\n");
+        }
+
+        long written = 0;
+        for (long count : typeCounts)
+            written += count;
+        return written;
+    }
+
+    //Fills the cells of a band of rows, counting what it placed once it is done
+    private byte[] generateBand(int band) {
+        SplittableRandom random = bandRandoms[band];
+        long[] bandCounts = new long[CELL_TYPES.length];
+        StringBuilder lines = new StringBuilder();
+
+        int endRow = Math.min((band + 1) * ROWS_PER_BAND, rows);
+        for (int row = band * ROWS_PER_BAND; row < endRow; row++) {
+            for (int column = 0; column < columns; column++) {
+                //Draws for every cell, kept clear or not, so each cell always gets the same draws
+                double fill = random.nextDouble(), pick = random.nextDouble();
+                int xShift = random.nextInt(MAX_SHIFT + 1), yShift = random.nextInt(MAX_SHIFT + 1);
+                if (fill >= density || isKeptClear(column, row))
+                    continue;
+
+                int typeNum = 0;
+                while (typeNum < mixThresholds.length - 1 && pick >= mixThresholds[typeNum])
+                    typeNum++;
+                bandCounts[typeNum]++;
+                lines.append(CELL_TYPES[typeNum]).append(',')
+                        .append(cellLeft(column) + xShift).append(',')
+                        .append(cellTop(row) + yShift).append('\n');
+            }
+        }
+
+        synchronized (typeCounts) {
+            for (int typeNum = 0; typeNum < typeCounts.length; typeNum++)
+                typeCounts[typeNum] += bandCounts[typeNum];
+        }
+        return lines.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    //The player's corner and Navec's cell stay empty
+    private boolean isKeptClear(int column, int row) {
+        return (column < CLEAR_CELLS && row < CLEAR_CELLS) || (column == columns - 1 && row == rows - 1);
+    }
+
+    private static int cellLeft(int column) {
+        return column * CELL_SIZE;
+    }
+
+    private static int cellTop(int row) {
+        return row * CELL_SIZE;
+    }
+
+    private String describeCounts() {
+        StringBuilder description = new StringBuilder();
+        for (int typeNum = 0; typeNum < CELL_TYPES.length; typeNum++) {
+            if (typeNum > 0)
+                description.append(", ");
+            description.append(typeCounts[typeNum]).append(' ').append(CELL_TYPES[typeNum]);
+        }
+        return description.toString();
+    }
+
+    private static double[] parseMix(String mixArg) {
+        String[] weights = mixArg.split(",");
+        double[] mix = new double[weights.length];
+        for (int i = 0; i < weights.length; i++)
+            mix[i] = Double.parseDouble(weights[i]);
+        return mix;
+    }
+
+    private static void writeFully(FileChannel outputFile, String text) throws IOException {
+        writeFully(outputFile, text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void writeFully(FileChannel outputFile, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining())
+            outputFile.write(buffer);
+    }
+}
@@ -0,0 +1,179 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads level files of any length, with one "type,x,y" entry per line.
+ * The file is memory-mapped and parsed byte by byte straight into a LevelEntryHandler,
+ * so no String or array is created per line.
+ * Malformed lines are reported with their line number and skipped.
+ */
+public class LevelReader {
+    /**
+     * Every entry type a level file can contain.
+     */
+    public final static String[] ENTRY_TYPES =
+            {Player.PLAYER_NAME, "Wall", "Tree", "Sinkhole", "Demon", "Navec", "TopLeft", "BottomRight"};
+
+    private final static byte[][] ENTRY_TYPE_BYTES = entryTypeBytes();
+    private final static int FIELD_COUNT = 3;
+    private final static int MAX_WINDOW_BYTES = 64 << 20;
+
+    private final String filepath;
+    private final LevelEntryHandler handler;
+
+    private long lineNum = 0;
+    private int malformedLines = 0;
+
+
+    private LevelReader(String filepath, LevelEntryHandler handler) {
+        this.filepath = filepath;
+        this.handler = handler;
+    }
+
+    /**
+     * Reads a level file and passes every well-formed entry to a handler, in file order.
+     * @param filepath
+     * The path to the file that describes the level.
+     * @param handler
+     * The handler building the level.
+     * @return
+     * The number of malformed lines that were skipped.
+     * @throws IOException
+     * If the file cannot be read.
+     */
+    public static int read(String filepath, LevelEntryHandler handler) throws IOException {
+        LevelReader reader = new LevelReader(filepath, handler);
+        reader.readFile();
+        return reader.malformedLines;
+    }
+
+    //Maps the file one window at a time, a window always ending on a complete line
+    private void readFile() throws IOException {
+        try (FileChannel levelFile = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+            long fileSize = levelFile.size();
+            long position = 0;
+
+            while (position < fileSize) {
+                long windowSize = Math.min(MAX_WINDOW_BYTES, fileSize - position);
+                MappedByteBuffer window = levelFile.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                boolean lastWindow = (position + windowSize == fileSize);
+
+                int parsed = readLines(window, lastWindow);
+                if (parsed == 0)
+                    throw new IOException(filepath + ":" + (lineNum + 1) + ": line is too long");
+                position += parsed;
+            }
+        }
+    }
+
+    //Returns the number of bytes read, which stops before a line cut off by the end of the window
+    private int readLines(MappedByteBuffer window, boolean lastWindow) {
+        int limit = window.limit();
+        int lineStart = 0;
+
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && window.get(lineEnd) != '\n')
+                lineEnd++;
+
+            if (lineEnd == limit && !lastWindow)
+                return lineStart;
+
+            lineNum++;
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && window.get(contentEnd - 1) == '\r')
+                contentEnd--;
+            if (contentEnd > lineStart)
+                readEntry(window, lineStart, contentEnd);
+
+            lineStart = lineEnd + 1;
+        }
+        return limit;
+    }
+
+    private void readEntry(MappedByteBuffer window, int start, int end) {
+        int firstComma = indexOf(window, start, end);
+        int secondComma = (firstComma < 0) ? -1 : indexOf(window, firstComma + 1, end);
+        if (secondComma < 0 || indexOf(window, secondComma + 1, end) >= 0) {
+            reportMalformed("expected " + FIELD_COUNT + " comma separated fields");
+            return;
+        }
+
+        String type = matchType(window, start, firstComma);
+        if (type == null) {
+            reportMalformed("unknown entry type");
+            return;
+        }
+
+        long xCoordinate = parseInt(window, firstComma + 1, secondComma);
+        long yCoordinate = parseInt(window, secondComma + 1, end);
+        if (xCoordinate == Long.MIN_VALUE || yCoordinate == Long.MIN_VALUE) {
+            reportMalformed("coordinates must be whole numbers");
+            return;
+        }
+
+        handler.resolveEntry(type, (int) xCoordinate, (int) yCoordinate);
+    }
+
+    private void reportMalformed(String problem) {
+        malformedLines++;
+        System.out.println(filepath + ":" + lineNum + ": " + problem + ", SKIPPING LINE!");
+    }
+
+    //Index of the next comma before end, or -1
+    private static int indexOf(MappedByteBuffer window, int start, int end) {
+        for (int i = start; i < end; i++)
+            if (window.get(i) == ',')
+                return i;
+        return -1;
+    }
+
+    //Finds the entry type spelled by the bytes, or null
+    private static String matchType(MappedByteBuffer window, int start, int end) {
+        for (int typeNum = 0; typeNum < ENTRY_TYPE_BYTES.length; typeNum++) {
+            byte[] typeBytes = ENTRY_TYPE_BYTES[typeNum];
+            if (typeBytes.length != end - start)
+                continue;
+
+            int i = 0;
+            while (i < typeBytes.length && window.get(start + i) == typeBytes[i])
+                i++;
+            if (i == typeBytes.length)
+                return ENTRY_TYPES[typeNum];
+        }
+        return null;
+    }
+
+    //Parses an optionally signed integer, returning Long.MIN_VALUE if the bytes are not one
+    private static long parseInt(MappedByteBuffer window, int start, int end) {
+        boolean negative = (start < end && window.get(start) == '-');
+        int i = negative ? start + 1 : start;
+        if (i == end)
+            return Long.MIN_VALUE;
+
+        long value = 0;
+        for (; i < end; i++) {
+            byte digit = window.get(i);
+            if (digit < '0' || digit > '9')
+                return Long.MIN_VALUE;
+
+            value = value * 10 + (digit - '0');
+            if (value > Integer.MAX_VALUE + 1L)
+                return Long.MIN_VALUE;
+        }
+
+        value = negative ? -value : value;
+        return (value > Integer.MAX_VALUE) ? Long.MIN_VALUE : value;
+    }
+
+    private static byte[][] entryTypeBytes() {
+        byte[][] typeBytes = new byte[ENTRY_TYPES.length][];
+        for (int typeNum = 0; typeNum < ENTRY_TYPES.length; typeNum++)
+            typeBytes[typeNum] = ENTRY_TYPES[typeNum].getBytes(StandardCharsets.US_ASCII);
+        return typeBytes;
+    }
+}
@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The entries of one version of a level file, kept as sorted coordinates for each entry type,
+ * so two versions of a level can be compared in a single pass with LevelDiff.
+ * Each entry takes one long, which keeps snapshots of levels with millions of entries small.
+ */
+public class LevelSnapshot implements LevelEntryHandler {
+    private final static int DEFAULT_CAPACITY = 16;
+
+    private final long[][] entries = new long[LevelReader.ENTRY_TYPES.length][];
+    private final int[] counts = new int[LevelReader.ENTRY_TYPES.length];
+
+
+    private LevelSnapshot() {
+        for (int typeNum = 0; typeNum < entries.length; typeNum++)
+            entries[typeNum] = new long[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Reads a level file into a snapshot.
+     * @param filepath
+     * The path to the file that describes the level, read with BinaryLevelReader if it is a compiled level
+     * and with LevelReader otherwise.
+     * @return
+     * The snapshot of the file.
+     * @throws IOException
+     * If the file cannot be read.
+     */
+    public static LevelSnapshot read(String filepath) throws IOException {
+        LevelSnapshot snapshot = new LevelSnapshot();
+        if (BinaryLevelReader.isCompiled(filepath))
+            BinaryLevelReader.read(filepath, snapshot);
+        else
+            LevelReader.read(filepath, snapshot);
+        for (int typeNum = 0; typeNum < snapshot.entries.length; typeNum++)
+            Arrays.parallelSort(snapshot.entries[typeNum], 0, snapshot.counts[typeNum]);
+        return snapshot;
+    }
+
+    @Override
+    public void resolveEntry(String type, int xCoordinate, int yCoordinate) {
+        int typeNum = typeNum(type);
+        if (counts[typeNum] == entries[typeNum].length)
+            entries[typeNum] = Arrays.copyOf(entries[typeNum], entries[typeNum].length * 2);
+        entries[typeNum][counts[typeNum]++] = pack(xCoordinate, yCoordinate);
+    }
+
+    /**
+     * Packs the coordinates of an entry into one long. Sorting packed entries sorts them by x, then y.
+     * @param xCoordinate
+     * X coordinate of the entry.
+     * @param yCoordinate
+     * Y coordinate of the entry.
+     * @return
+     * The packed coordinates.
+     */
+    public static long pack(int xCoordinate, int yCoordinate) {
+        return ((long) xCoordinate << 32) | (yCoordinate & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Unpacks the x coordinate of an entry.
+     * @param entry
+     * The packed coordinates.
+     * @return
+     * X coordinate of the entry.
+     */
+    public static int unpackX(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    /**
+     * Unpacks the y coordinate of an entry.
+     * @param entry
+     * The packed coordinates.
+     * @return
+     * Y coordinate of the entry.
+     */
+    public static int unpackY(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Finds the position of an entry type in LevelReader.ENTRY_TYPES.
+     * @param type
+     * The type of the entry.
+     * @return
+     * The position of the type.
+     * @throws IllegalArgumentException
+     * If the type is not an entry type.
+     */
+    public static int typeNum(String type) {
+        for (int typeNum = 0; typeNum < LevelReader.ENTRY_TYPES.length; typeNum++)
+            if (LevelReader.ENTRY_TYPES[typeNum].equals(type))
+                return typeNum;
+        throw new IllegalArgumentException(type + " is not a level entry type");
+    }
+
+    //Get methods
+    /**
+     *
+     * @return
+     * The packed coordinates of the entries of a type, sorted. Only the first getCount(typeNum) are entries.
+     */
+    long[] getEntries(int typeNum) {
+        return entries[typeNum];
+    }
+    /**
+     *
+     * @return
+     * The number of entries of a type.
+     */
+    public int getCount(int typeNum) {
+        return counts[typeNum];
+    }
+}
@@ -0,0 +1,166 @@
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the .csv file of the level being played and works out what changed each time it is saved,
+ * so the level can be edited while the game runs.
+ * The file is read again and compared with its last version on a thread of its own,
+ * and the changes wait in a queue until the game takes them with poll and applies them to its World.
+ */
+public class LevelWatcher implements AutoCloseable {
+    //Editors often write a file in several steps, so a change is only read once the file has been quiet this long
+    private final static long SETTLE_MS = 100;
+
+    private final WatchService watchService;
+    private final Thread thread;
+    private final HashSet<Path> watchedDirectories = new HashSet<>();
+    private final ConcurrentLinkedQueue<LevelDiff> edits = new ConcurrentLinkedQueue<>();
+
+    //The file and version asked for by watch, and the file and version the watcher thread compares against
+    private volatile Path requestedFile;
+    private LevelSnapshot requestedSnapshot;
+    private Path watchedFile;
+    private LevelSnapshot snapshot;
+
+
+    /**
+     * Instantiates the watcher and starts its thread. Nothing is watched until watch is called.
+     * @throws IOException
+     * If the file system cannot watch files.
+     */
+    public LevelWatcher() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        thread = new Thread(this::run, "level-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts watching a level file instead of the one watched before. Changes not yet taken with poll are dropped.
+     * @param filepath
+     * The path to the .csv file of the level being played.
+     * @param snapshot
+     * The version of the level the World being played was built from, which later changes are compared with,
+     * so changes saved while the World was built are found too.
+     */
+    public void watch(String filepath, LevelSnapshot snapshot) {
+        synchronized (edits) {
+            requestedFile = Paths.get(filepath).toAbsolutePath().normalize();
+            requestedSnapshot = snapshot;
+            edits.clear();
+        }
+        thread.interrupt();
+    }
+
+    /**
+     * Takes the oldest change to the watched file that has not been applied yet.
+     * @return
+     * The change, or null if there is none.
+     */
+    public LevelDiff poll() {
+        return edits.poll();
+    }
+
+    /**
+     * Stops watching files and stops the watcher thread.
+     * @throws IOException
+     * If the file system cannot stop watching.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                try {
+                    Path file;
+                    LevelSnapshot version;
+                    synchronized (edits) {
+                        file = requestedFile;
+                        version = requestedSnapshot;
+                    }
+                    //Edits saved since the World was built are found without waiting for the next save
+                    if (file != watchedFile) {
+                        startWatching(file, version);
+                        readChanges();
+                    }
+
+                    WatchKey key = watchService.take();
+                    boolean changed = pollChanged(key);
+                    //Waits for the file to settle, taking every event that comes in meanwhile
+                    while ((key = watchService.poll(SETTLE_MS, TimeUnit.MILLISECONDS)) != null)
+                        changed |= pollChanged(key);
+                    if (changed)
+                        readChanges();
+                } catch (InterruptedException e) {
+                    //Woken by watch to switch files
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            //Closed, the thread ends
+        }
+    }
+
+    //Tried again after the next event if the directory of the file cannot be watched yet
+    private void startWatching(Path file, LevelSnapshot version) {
+        watchedFile = null;
+        snapshot = null;
+        try {
+            Path directory = file.getParent();
+            if (watchedDirectories.add(directory))
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            snapshot = version;
+            watchedFile = file;
+        } catch (IOException e) {
+            System.err.println("Could not watch " + file + ": " + e);
+        }
+    }
+
+    //Takes the events of a key, showing if any was about the watched file
+    private boolean pollChanged(WatchKey key) {
+        boolean changed = false;
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            //Events may have been lost on overflow, so the file is read in case it changed
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW ||
+                    directory.resolve((Path) event.context()).equals(watchedFile))
+                changed = true;
+        }
+        key.reset();
+        return changed;
+    }
+
+    //Reads the file again and queues what changed since the last version that could be read
+    private void readChanges() {
+        if (snapshot == null)
+            return;
+
+        try {
+            LevelSnapshot edited = LevelSnapshot.read(watchedFile.toString());
+            LevelDiff diff = LevelDiff.between(snapshot, edited);
+            snapshot = edited;
+            synchronized (edits) {
+                if (!diff.isEmpty() && requestedFile == watchedFile)
+                    edits.add(diff);
+            }
+        } catch (ClosedByInterruptException e) {
+            //Woken by watch while reading, the file of the next level is watched instead
+        } catch (IOException e) {
+            System.err.println("Could not read " + watchedFile + ", keeping its last version: " + e);
+        }
+    }
+}
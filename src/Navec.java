@@ -1,4 +1,4 @@
-import bagel.Image;
+import java.util.Random;
 
 /**
  * A boss enemy that aims to defeat the player.
@@ -6,11 +6,11 @@ import bagel.Image;
  */
 public class Navec extends Enemy {
     private final static String BOSS_NAME = "Navec";
-    private final static Image LEFT_AVATAR = new Image("res/navec/navecLeft.png");
-    private final static Image RIGHT_AVATAR = new Image("res/navec/navecRight.png");
-    private final static Image LEFT_INVINCIBLE_AVATAR = new Image("res/navec/navecInvincibleLeft.png");
-    private final static Image RIGHT_INVINCIBLE_AVATAR = new Image("res/navec/navecInvincibleRight.png");
-    private final static Image FIRE_IMG = new Image("res/navec/navecFire.png");
+    private final static Sprite LEFT_AVATAR = new Sprite("res/navec/navecLeft.png");
+    private final static Sprite RIGHT_AVATAR = new Sprite("res/navec/navecRight.png");
+    private final static Sprite LEFT_INVINCIBLE_AVATAR = new Sprite("res/navec/navecInvincibleLeft.png");
+    private final static Sprite RIGHT_INVINCIBLE_AVATAR = new Sprite("res/navec/navecInvincibleRight.png");
+    private final static Sprite FIRE_IMG = new Sprite("res/navec/navecFire.png");
     private final static int MAX_HP = 80;
     private final static int DMG = 20;
     private final static int DETECT_RADIUS = 200;
@@ -22,29 +22,33 @@ public class Navec extends Enemy {
      * Starting x coordinate.
      * @param yInput
      * Starting y coordinate.
+     * @param store
+     * The store holding the boundaries of the objects in Navec's world.
+     * @param random
+     * The generator that decides how Navec starts moving.
      */
-    public Navec(int xInput, int yInput) {
-        super(xInput, yInput, MAX_HP, DETECT_RADIUS, LEFT_AVATAR, true);
+    public Navec(int xInput, int yInput, BoundsStore store, Random random) {
+        super(xInput, yInput, MAX_HP, DETECT_RADIUS, LEFT_AVATAR, true, store, random);
     }
 
     @Override
-    protected Image leftAvatar() {
+    protected Sprite leftAvatar() {
         return LEFT_AVATAR;
     }
     @Override
-    protected Image rightAvatar() {
+    protected Sprite rightAvatar() {
         return RIGHT_AVATAR;
     }
     @Override
-    protected Image leftInvincibleAvatar() {
+    protected Sprite leftInvincibleAvatar() {
         return LEFT_INVINCIBLE_AVATAR;
     }
     @Override
-    protected Image rightInvincibleAvatar() {
+    protected Sprite rightInvincibleAvatar() {
         return RIGHT_INVINCIBLE_AVATAR;
     }
     @Override
-    protected Image fireImg() {
+    protected Sprite fireImg() {
         return FIRE_IMG;
     }
 
@@ -56,4 +60,12 @@ public class Navec extends Enemy {
     public String getName() {
         return BOSS_NAME;
     }
+    /**
+     *
+     * @return
+     * The sprite Navec is created with, which gives the size of its boundary.
+     */
+    static Sprite getSpawnSprite() {
+        return LEFT_AVATAR;
+    }
 }
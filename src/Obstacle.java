@@ -1,11 +1,10 @@
-import bagel.Image;
 
 /**
  * Represents a wall that hinders an entity's movement.
  */
 public class Obstacle extends WorldObject {
-    private final static Image WALL_IMG = new Image("res/wall.png");
-    private final static Image TREE_IMG = new Image("res/tree.png");
+    private final static Sprite WALL_IMG = new Sprite("res/wall.png");
+    private final static Sprite TREE_IMG = new Sprite("res/tree.png");
     private final boolean organic;
 
 
@@ -18,17 +17,37 @@ public class Obstacle extends WorldObject {
      * @param organic
      * If true, the obstacle is an organic bare tree.
      * If false, the obstacle is an inorganic white wall.
+     * @param store
+     * The store holding the boundaries of the objects in the obstacle's world.
      */
-    public Obstacle(int xCoordinate, int yCoordinate, boolean organic) {
+    public Obstacle(int xCoordinate, int yCoordinate, boolean organic, BoundsStore store) {
         super(xCoordinate, yCoordinate,
-                organic ? TREE_IMG : WALL_IMG);
+                organic ? TREE_IMG : WALL_IMG, store, BoundsStore.OBSTACLE);
         this.organic = organic;
     }
 
     @Override
-    protected Image getImg() {
+    protected Sprite getImg() {
         if (organic)
             return TREE_IMG;
         return WALL_IMG;
     }
+    /**
+     *
+     * @return
+     * Whether the obstacle is a tree rather than a wall.
+     */
+    public boolean isOrganic() {
+        return organic;
+    }
+    /**
+     *
+     * @param organic
+     * If true, the sprite of a tree, otherwise of a wall.
+     * @return
+     * The sprite an obstacle is created with, which gives the size of its boundary.
+     */
+    static Sprite getSpawnSprite(boolean organic) {
+        return organic ? TREE_IMG : WALL_IMG;
+    }
 }
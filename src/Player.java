@@ -1,4 +1,4 @@
-import bagel.*;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 /**
@@ -10,10 +10,10 @@ public class Player extends Entity {
      */
     public final static String PLAYER_NAME = "Fae";
 
-    private final static Image LEFT_AVATAR = new Image("res/fae/faeLeft.png");
-    private final static Image RIGHT_AVATAR = new Image("res/fae/faeRight.png");
-    private final static Image LEFT_ATTACK_AVATAR = new Image("res/fae/faeAttackLeft.png");
-    private final static Image RIGHT_ATTACK_AVATAR = new Image("res/fae/faeAttackRight.png");
+    private final static Sprite LEFT_AVATAR = new Sprite("res/fae/faeLeft.png");
+    private final static Sprite RIGHT_AVATAR = new Sprite("res/fae/faeRight.png");
+    private final static Sprite LEFT_ATTACK_AVATAR = new Sprite("res/fae/faeAttackLeft.png");
+    private final static Sprite RIGHT_ATTACK_AVATAR = new Sprite("res/fae/faeAttackRight.png");
     private final static double STEP_SIZE = 2;
     private final static int MAX_HP = 100;
     private final static int DMG = 20;
@@ -22,6 +22,7 @@ public class Player extends Entity {
     private final static int INVINCIBLE_DURATION_MS = 3000;
 
     private final double attackWidthDifference = RIGHT_ATTACK_AVATAR.getWidth() - RIGHT_AVATAR.getWidth();
+    private final ArrayList<WorldObject> attackCandidates = new ArrayList<>();
 
     private boolean attacking = false;
     private double attackCountdown = 0;
@@ -35,9 +36,11 @@ public class Player extends Entity {
      * Starting x coordinate.
      * @param yInput
      * Starting y coordinate.
+     * @param store
+     * The store holding the boundaries of the objects in the player's world.
      */
-    public Player(int xInput, int yInput) {
-        super(xInput, yInput, RIGHT_AVATAR, MAX_HP, INVINCIBLE_DURATION_MS);
+    public Player(int xInput, int yInput, BoundsStore store) {
+        super(xInput, yInput, RIGHT_AVATAR, MAX_HP, INVINCIBLE_DURATION_MS, store, BoundsStore.PLAYER);
         setStepSize(STEP_SIZE);
     }
 
@@ -47,7 +50,7 @@ public class Player extends Entity {
      */
     public void startAttack() {
         if (!attackCooldown && !attacking) {
-            getBounds().setRightBound(getXCoordinate() + RIGHT_ATTACK_AVATAR.getWidth());
+            setRightBound(getXCoordinate() + RIGHT_ATTACK_AVATAR.getWidth());
             if (isFacingLeft())
                 moveLeft(attackWidthDifference, false);
 
@@ -62,9 +65,9 @@ public class Player extends Entity {
      * @param timePassedMs
      * The amount of time that passed for each update of the game in ms.
      * @param objects
-     * The list of objects in the world.
+     * Index of the objects in the player's world, used to find the enemies the attack reaches.
      */
-    public void updatePlayer(double timePassedMs, ArrayList<WorldObject> objects) {
+    public void updatePlayer(double timePassedMs, SpatialIndex objects) {
         updateInvincibility(timePassedMs);
         if (attacking) {
             attackCountdown -= timePassedMs;
@@ -73,14 +76,20 @@ public class Player extends Entity {
                 attacking = false;
                 attackCooldown = true;
                 cooldownCountdown = ATTACK_COOLDOWN_MS;
-                getBounds().setRightBound(getXCoordinate() + RIGHT_AVATAR.getWidth());
+                setRightBound(getXCoordinate() + RIGHT_AVATAR.getWidth());
                 if (isFacingLeft())
                     moveRight(attackWidthDifference, false);
             }
 
-            for (WorldObject object : objects)
-                if (object instanceof Enemy && checkOverlap(object))
+            //Only the objects around the player are looked at, in creation order, skipping anything but enemies
+            BoundsStore store = getStore();
+            objects.query(getLeftBound(), getTopBound(), getRightBound(), getBotBound(), attackCandidates);
+            for (int i = 0; i < attackCandidates.size(); i++) {
+                WorldObject object = attackCandidates.get(i);
+                int slot = object.getSlot();
+                if (store.getType(slot) == BoundsStore.ENEMY && store.overlaps(getSlot(), slot))
                     hitEntity((Enemy) object);
+            }
 
         } else if (attackCooldown) {
             cooldownCountdown -= timePassedMs;
@@ -91,6 +100,41 @@ public class Player extends Entity {
         }
     }
 
+    /**
+     * Writes the player's state: its boundary, which the attack widens, the state every entity has,
+     * and its attack and cooldown.
+     * Layout: double left, top, right and bottom bounds, the entity state, byte attacking, byte cooling down,
+     * then double attack countdown in ms if attacking and double cooldown countdown in ms if cooling down.
+     * @param buffer
+     * The buffer written to, from its position.
+     */
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        buffer.putDouble(getLeftBound()).putDouble(getTopBound()).putDouble(getRightBound()).putDouble(getBotBound());
+        super.writeState(buffer);
+        buffer.put((byte) (attacking ? 1 : 0));
+        buffer.put((byte) (attackCooldown ? 1 : 0));
+        if (attacking)
+            buffer.putDouble(attackCountdown);
+        if (attackCooldown)
+            buffer.putDouble(cooldownCountdown);
+    }
+
+    /**
+     * Reads the state written by writeState.
+     * @param buffer
+     * The buffer read from, from its position.
+     */
+    @Override
+    public void readState(ByteBuffer buffer) {
+        setBounds(buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        super.readState(buffer);
+        attacking = buffer.get() != 0;
+        attackCooldown = buffer.get() != 0;
+        attackCountdown = attacking ? buffer.getDouble() : 0;
+        cooldownCountdown = attackCooldown ? buffer.getDouble() : 0;
+    }
+
     @Override
     protected void collideObject(double distance, WorldObject object, int direction) {
         if ((object instanceof Sinkhole) && (distance < getStepSize())) {
@@ -108,13 +152,13 @@ public class Player extends Entity {
 
     //Get methods
     @Override
-    protected Image getLeftAvatar() {
+    protected Sprite getLeftAvatar() {
         if (attacking)
             return LEFT_ATTACK_AVATAR;
         return LEFT_AVATAR;
     }
     @Override
-    protected Image getRightAvatar() {
+    protected Sprite getRightAvatar() {
         if (attacking)
             return RIGHT_ATTACK_AVATAR;
         return RIGHT_AVATAR;
@@ -127,5 +171,13 @@ public class Player extends Entity {
     public String getName() {
         return PLAYER_NAME;
     }
+    /**
+     *
+     * @return
+     * The sprite the player is created with, which gives the size of its boundary.
+     */
+    static Sprite getSpawnSprite() {
+        return RIGHT_AVATAR;
+    }
 }
 
@@ -0,0 +1,162 @@
+import java.util.Arrays;
+
+/**
+ * The keys that acted on every update of one level, with what is needed to build the level again
+ * and the hash of the level's state after every update.
+ * Part of an InputRecording.
+ */
+public class RecordedLevel {
+    private final static int DEFAULT_CAPACITY = 1024;
+
+    private final int levelNum;
+    private final String levelFilepath;
+    private final long seed;
+    private final int timescale;
+    private final double stepMs;
+
+    private byte[] keys;
+    private int[] hashes;
+    private int tickCount = 0;
+
+
+    /**
+     * Instantiates a level with no updates recorded yet.
+     * @param levelNum
+     * The level number.
+     * @param levelFilepath
+     * The path to the file the level was built from.
+     * @param seed
+     * The seed the level was built with.
+     * @param timescale
+     * The game's timescale when the level started.
+     * @param stepMs
+     * The amount of time that passed for each update in ms.
+     */
+    public RecordedLevel(int levelNum, String levelFilepath, long seed, int timescale, double stepMs) {
+        this(levelNum, levelFilepath, seed, timescale, stepMs, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Instantiates a level with room for a number of updates.
+     * @param levelNum
+     * The level number.
+     * @param levelFilepath
+     * The path to the file the level was built from.
+     * @param seed
+     * The seed the level was built with.
+     * @param timescale
+     * The game's timescale when the level started.
+     * @param stepMs
+     * The amount of time that passed for each update in ms.
+     * @param capacity
+     * The number of updates that can be recorded before the arrays grow.
+     */
+    public RecordedLevel(int levelNum, String levelFilepath, long seed, int timescale, double stepMs, int capacity) {
+        this.levelNum = levelNum;
+        this.levelFilepath = levelFilepath;
+        this.seed = seed;
+        this.timescale = timescale;
+        this.stepMs = stepMs;
+        keys = new byte[Math.max(capacity, 1)];
+        hashes = new int[keys.length];
+    }
+
+    /**
+     * Records one update of the level.
+     * @param tickKeys
+     * The TickInput bits of the keys that acted on the update.
+     * @param stateHash
+     * The hash of the level's state after the update, from World.stateHash.
+     */
+    public void record(int tickKeys, long stateHash) {
+        recordFolded(tickKeys, foldHash(stateHash));
+    }
+
+    //Records an update whose hash is already shortened, as read from a file
+    void recordFolded(int tickKeys, int foldedHash) {
+        if (tickCount == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+            hashes = Arrays.copyOf(hashes, keys.length);
+        }
+        keys[tickCount] = (byte) tickKeys;
+        hashes[tickCount] = foldedHash;
+        tickCount++;
+    }
+
+    /**
+     * Shortens a state hash to the 32 bits kept in a recording.
+     * @param stateHash
+     * The hash from World.stateHash.
+     * @return
+     * The hash kept in a recording.
+     */
+    public static int foldHash(long stateHash) {
+        return (int) (stateHash ^ (stateHash >>> 32));
+    }
+
+    //Get methods
+    /**
+     *
+     * @return
+     * The level number.
+     */
+    public int getLevelNum() {
+        return levelNum;
+    }
+    /**
+     *
+     * @return
+     * The path to the file the level was built from.
+     */
+    public String getLevelFilepath() {
+        return levelFilepath;
+    }
+    /**
+     *
+     * @return
+     * The seed the level was built with.
+     */
+    public long getSeed() {
+        return seed;
+    }
+    /**
+     *
+     * @return
+     * The game's timescale when the level started.
+     */
+    public int getTimescale() {
+        return timescale;
+    }
+    /**
+     *
+     * @return
+     * The amount of time that passed for each update in ms.
+     */
+    public double getStepMs() {
+        return stepMs;
+    }
+    /**
+     *
+     * @return
+     * The number of updates recorded.
+     */
+    public int getTickCount() {
+        return tickCount;
+    }
+    /**
+     *
+     * @return
+     * The TickInput bits of the keys that acted on an update.
+     */
+    public int getKeys(int tick) {
+        return keys[tick] & 0xFF;
+    }
+    /**
+     *
+     * @return
+     * The hash of the level's state after an update, as shortened by foldHash.
+     */
+    public int getHash(int tick) {
+        return hashes[tick];
+    }
+}
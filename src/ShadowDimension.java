@@ -1,6 +1,12 @@
 import bagel.*;
-import java.io.FileReader;
-import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Code for SWEN20003 Project 2, Semester 2, 2022
@@ -38,13 +44,22 @@ public class ShadowDimension extends AbstractGame {
     private final static int WINDOW_WIDTH = 1024;
     private final static int WINDOW_HEIGHT = 768;
     private final static String GAME_TITLE = "SHADOW DIMENSION";
-    private final static double REFRESH_RATE_HZ = 60;
-    private final static double DEFAULT_TIME_MS = 1000/REFRESH_RATE_HZ;
-    private final static double MAX_TIMESCALE = 3;
-    private final static double MIN_TIMESCALE = -3;
+    //The world is updated at a fixed rate whatever rate the window is drawn at.
+    //Speeds are in distance per update, so they are tuned for 60 updates per second
+    private final static double SIMULATION_RATE_HZ = 60;
+    private final static double STEP_MS = 1000/SIMULATION_RATE_HZ;
+    private final static int MAX_STEPS_PER_FRAME = 5;
+
+    //Frame timings are toggled with F3 and drawn to the right of the player's health
+    private final static int PROFILER_X_COORDINATE = 160;
+    private final static int PROFILER_Y_COORDINATE = 20;
+
+    //Command line options that record the session, fix its seed or apply edits of the level files as they are saved
+    private final static String RECORD_OPTION = "--record";
+    private final static String SEED_OPTION = "--seed";
+    private final static String WATCH_OPTION = "--watch";
 
     //Defined level variables that determine the features of the levels
-    private final static int[] MAX_ENTRIES = {60, 29};
     private final static String[] LEVEL_CSV = {"res/level0.csv", "res/level1.csv"};
     private final static int MAX_LEVEL = LEVEL_CSV.length - 1;
 
@@ -58,70 +73,170 @@ public class ShadowDimension extends AbstractGame {
     //Related to menu texts
     private final Text gameText = new Text(WINDOW_WIDTH, WINDOW_HEIGHT);
 
+    //Decides how many updates each frame runs
+    private final FixedTimestep gameClock = new FixedTimestep(STEP_MS, MAX_STEPS_PER_FRAME);
+
+    //Each level's seed is derived from the session's seed, and the levels played are recorded if asked
+    private final long seed;
+    private final InputRecording recording;
+    private RecordedLevel recordedLevel;
+    private final LevelWatcher levelWatcher;
+    //Every level played records its fights into the one log of the game, one level after another
+    private final CombatLog combatLog = new CombatLog(CombatLog.LOG_FILE);
+
+    //Levels are built on a background thread, each one while the level before it is played,
+    //and only handed to the game once they are complete
+    private final ExecutorService levelLoader = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "level-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<BuiltLevel> nextLevel;
+
     //Variables related to the current states of the game
     private int timescale = 0;
     private int levelNum = 0;
     private int gameState = START_STATE;
+    private World level;
+    private LevelSnapshot levelSnapshot;
 
-    //Instantiates the level and passes the strings read in readCSV method
-    private World level = new World(levelNum, readCSV(LEVEL_CSV[levelNum]));
 
+    /**
+     * Instantiates the program with defined variables and a random seed.
+     */
+    public ShadowDimension() {
+        this(new Random().nextLong(), null, null);
+    }
 
     /**
      * Instantiates the program with defined variables.
+     * @param seed
+     * The seed the levels' random choices are derived from.
+     * @param recording
+     * The recording the levels played are added to, or null to not record.
+     * @param levelWatcher
+     * The watcher that finds edits of the level being played, or null to not apply edits.
      */
-    public ShadowDimension() {
+    public ShadowDimension(long seed, InputRecording recording, LevelWatcher levelWatcher) {
         super(WINDOW_WIDTH, WINDOW_HEIGHT, GAME_TITLE);
+        this.seed = seed;
+        this.recording = recording;
+        this.levelWatcher = levelWatcher;
+        AssetManager.preload(Sprite.getFilepaths());
+        nextLevel = buildLevel(levelNum);
     }
 
 
     /**
      * The entry point for the program.
+     * Usage: ShadowDimension [--seed seed] [--record recording] [--watch]
+     * A recording is written when the game exits and can be replayed with HeadlessSimulation.
+     * With --watch, edits saved to the .csv file of the level being played are applied to it straight away.
+     * Levels edited while they are recorded cannot be replayed.
      */
     public static void main(String[] args) {
-        ShadowDimension game = new ShadowDimension();
+        long seed = new Random().nextLong();
+        Path recordingFile = null;
+        boolean watchLevels = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals(WATCH_OPTION))
+                watchLevels = true;
+            else if (args[i].equals(SEED_OPTION) && i + 1 < args.length)
+                seed = Long.parseLong(args[++i]);
+            else if (args[i].equals(RECORD_OPTION) && i + 1 < args.length)
+                recordingFile = Paths.get(args[++i]);
+        }
+
+        InputRecording recording = null;
+        if (recordingFile != null) {
+            recording = new InputRecording();
+            writeOnExit(recording, recordingFile);
+        }
+
+        LevelWatcher levelWatcher = null;
+        if (watchLevels) {
+            try {
+                levelWatcher = new LevelWatcher();
+            } catch (IOException e) {
+                System.err.println("Could not watch the level files: " + e);
+            }
+        }
+
+        ShadowDimension game = new ShadowDimension(seed, recording, levelWatcher);
         game.run();
     }
 
-
-    /**
-     * Method used to read file and create objects.
-     * @param csvFilepath
-     * The path to the file that describes the level being created.
-     * @return
-     * An array of Strings where each line is an element.
-     */
-    private String[] readCSV(String csvFilepath) {
-        String[] worldEntries = new String[MAX_ENTRIES[levelNum]];
-        int entryNum = 0;
-
-        try (BufferedReader levelFile = new BufferedReader(new FileReader(csvFilepath))) {
-            String text;
-            while ((text = levelFile.readLine()) != null && entryNum < MAX_ENTRIES[levelNum]) {
-                worldEntries[entryNum] = text;
-                entryNum++;
+    private static void writeOnExit(InputRecording recording, Path recordingFile) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                recording.write(recordingFile);
+            } catch (IOException e) {
+                System.err.println("Could not write the recording: " + e);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+        }, "input-recording-writer"));
+    }
+
+
+    //Starts building a level from its compiled file if that is up to date on the loader thread,
+    //and composing the walls and trees it first shows.
+    //When edits are applied, the file the level was built from is also kept as the version edits are compared with
+    private Future<BuiltLevel> buildLevel(int levelNum) {
+        return levelLoader.submit(() -> {
+            String levelFilepath = BinaryLevelReader.preferCompiled(LEVEL_CSV[levelNum]);
+            World world = new World(levelNum, levelFilepath, seed + levelNum);
+            world.prepareDrawing(WINDOW_WIDTH, WINDOW_HEIGHT);
+            LevelSnapshot snapshot = (levelWatcher != null) ? LevelSnapshot.read(levelFilepath) : null;
+            return new BuiltLevel(world, snapshot);
+        });
+    }
+
+    //Takes the current level once it is built, waiting for it only if it is not done yet,
+    //and closes the game if its file is unreadable or missing a crucial entry
+    private World takeNextLevel() {
+        if (nextLevel == null)
+            nextLevel = buildLevel(levelNum);
+
+        try {
+            BuiltLevel built = nextLevel.get();
+            levelSnapshot = built.snapshot;
+            return built.world;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalStateException)
+                System.out.println(e.getCause().getMessage() + " EXITING!");
+            else
+                e.getCause().printStackTrace();
+        } finally {
+            nextLevel = null;
         }
 
-        return worldEntries;
+        Window.close();
+        return null;
     }
 
 
     /**
      * Performs a state update.
-     * allows the game to exit when the escape key is pressed.
+     * allows the game to exit when the escape key is pressed and toggles the frame timings with F3.
+     * The sprite atlas is loaded on the first frame after it is ready.
      */
     @Override
     protected void update(Input input) {
+        long frameStartNs = FrameProfiler.start();
+        AssetManager.update();
         if (input.wasPressed(Keys.ESCAPE))
             Window.close();
+        if (input.wasPressed(Keys.F3))
+            FrameProfiler.toggle();
 
-        if (input.wasPressed(Keys.L))
-            speedUp();
-        if (input.wasPressed(Keys.K))
-            slowDown();
+        //While playing, the world changes the timescale itself so the change is part of its update
+        if (gameState != PLAY_STATE) {
+            if (input.wasPressed(Keys.L))
+                speedUp();
+            if (input.wasPressed(Keys.K))
+                slowDown();
+        }
 
         switch (gameState) {
             case(START_STATE):
@@ -140,42 +255,72 @@ public class ShadowDimension extends AbstractGame {
                 gameText.writeLoseScreen();
                 break;
         }
+
+        FrameProfiler.drawOverlay(PROFILER_X_COORDINATE, PROFILER_Y_COORDINATE);
+        FrameProfiler.stop(FrameProfiler.FRAME, frameStartNs);
     }
 
 
     private void speedUp() {
-        if (timescale < MAX_TIMESCALE)
+        if (timescale < World.MAX_TIMESCALE)
             timescale++;
 
-        System.out.println("Sped up, Speed:  " + timescale);
+        combatLog.timescale(1, timescale);
     }
 
     private void slowDown() {
-        if (timescale > MIN_TIMESCALE)
+        if (timescale > World.MIN_TIMESCALE)
             timescale--;
 
-        System.out.println("Slowed down, Speed:  " + timescale);
+        combatLog.timescale(-1, timescale);
     }
 
     private void startingGame(Input input) {
         gameText.writeStartScreen();
-        if (input.wasPressed(Keys.SPACE))
-            gameState = PLAY_STATE;
+        if (input.wasPressed(Keys.SPACE)) {
+            level = takeNextLevel();
+            if (level != null)
+                startLevel();
+        }
     }
 
+    //Runs as many fixed updates as the time since the last frame allows, then draws between the last two
     private void playingGame(Input input) {
-        level.updateWorld(DEFAULT_TIME_MS, timescale);
+        applyLevelEdits();
         level.controlPlayer(input);
 
-        if (level.hasWon()) {
-            if (levelNum >= MAX_LEVEL)
-                gameState = WIN_STATE;
-            else
-                gameState = TRANSITION_STATE;
+        int steps = gameClock.advance(System.nanoTime());
+        for (int step = 0; step < steps && gameState == PLAY_STATE; step++) {
+            level.updateWorld(STEP_MS);
+            if (recordedLevel != null)
+                recordedLevel.record(level.getTickKeys(), level.stateHash());
+
+            if (level.hasWon()) {
+                if (levelNum >= MAX_LEVEL)
+                    gameState = WIN_STATE;
+                else
+                    gameState = TRANSITION_STATE;
+            }
+
+            if (level.hasLost())
+                gameState = LOSE_STATE;
         }
 
-        if (level.hasLost())
-            gameState = LOSE_STATE;
+        timescale = level.getTimescale();
+
+        long drawStartNs = FrameProfiler.start();
+        level.drawWorld(gameClock.getAlpha());
+        FrameProfiler.stop(FrameProfiler.DRAW_WORLD, drawStartNs);
+    }
+
+    //Applies the edits saved to the level's file since the last frame, before the level is updated
+    private void applyLevelEdits() {
+        if (levelWatcher == null)
+            return;
+
+        LevelDiff edit;
+        while ((edit = levelWatcher.poll()) != null)
+            level.applyLevelEdit(edit);
     }
 
     private void transitionLevel(Input input) {
@@ -183,8 +328,36 @@ public class ShadowDimension extends AbstractGame {
         if (input.wasPressed(Keys.SPACE)) {
             if (levelNum < MAX_LEVEL)
                 levelNum++;
-            level = new World(levelNum, readCSV(LEVEL_CSV[levelNum]));
-            gameState = PLAY_STATE;
+            level.release();
+            level = takeNextLevel();
+            if (level != null)
+                startLevel();
+        }
+    }
+
+    //Starts playing the current level at the timescale chosen so far, and starts building the next one
+    private void startLevel() {
+        level.setTimescale(timescale);
+        level.setCombatLog(combatLog);
+        if (levelWatcher != null)
+            levelWatcher.watch(LEVEL_CSV[levelNum], levelSnapshot);
+        if (recording != null)
+            recordedLevel = recording.startLevel(level, STEP_MS);
+        gameState = PLAY_STATE;
+        gameClock.reset();
+
+        if (levelNum < MAX_LEVEL)
+            nextLevel = buildLevel(levelNum + 1);
+    }
+
+    //A level built on the loader thread, with the version of its file it was built from
+    private static class BuiltLevel {
+        private final World world;
+        private final LevelSnapshot snapshot;
+
+        private BuiltLevel(World world, LevelSnapshot snapshot) {
+            this.world = world;
+            this.snapshot = snapshot;
         }
     }
 }
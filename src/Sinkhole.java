@@ -1,4 +1,3 @@
-import bagel.Image;
 
 /**
  * Represents a trap that can damage the player.
@@ -6,7 +5,7 @@ import bagel.Image;
 public class Sinkhole extends WorldObject implements CanAttack, Removable {
     private final static String NAME = "Sinkhole";
     private final static int DMG = 30;
-    private final static Image SINKHOLE_IMG = new Image("res/sinkhole.png");
+    private final static Sprite SINKHOLE_IMG = new Sprite("res/sinkhole.png");
     private boolean remove = false;
 
     /**
@@ -15,15 +14,25 @@ public class Sinkhole extends WorldObject implements CanAttack, Removable {
      * X coordinate.
      * @param yCoordinate
      * Y coordinate.
+     * @param store
+     * The store holding the boundaries of the objects in the trap's world.
      */
-    public Sinkhole(int xCoordinate, int yCoordinate) {
-        super(xCoordinate, yCoordinate, SINKHOLE_IMG);
+    public Sinkhole(int xCoordinate, int yCoordinate, BoundsStore store) {
+        super(xCoordinate, yCoordinate, SINKHOLE_IMG, store, BoundsStore.SINKHOLE);
     }
 
     @Override
     public void removeObject() {
+        if (!remove)
+            getStore().markRemoved(getSlot());
         remove = true;
     }
+    /**
+     * Puts the trap back as it was before the player fell into it, such as when a saved state is restored.
+     */
+    public void restore() {
+        remove = false;
+    }
     @Override
     public boolean isRemoved() {
         return remove;
@@ -31,7 +40,7 @@ public class Sinkhole extends WorldObject implements CanAttack, Removable {
 
     //Get methods
     @Override
-    protected Image getImg() {
+    protected Sprite getImg() {
         return SINKHOLE_IMG;
     }
     @Override
@@ -42,4 +51,12 @@ public class Sinkhole extends WorldObject implements CanAttack, Removable {
     public String getName() {
         return NAME;
     }
+    /**
+     *
+     * @return
+     * The sprite a sinkhole is created with, which gives the size of its boundary.
+     */
+    static Sprite getSpawnSprite() {
+        return SINKHOLE_IMG;
+    }
 }
@@ -0,0 +1,54 @@
+import java.util.ArrayList;
+
+/**
+ * Represents a structure that finds the objects lying in an area of the world
+ * without scanning through every object in it.
+ */
+public interface SpatialIndex {
+    /**
+     * Adds an object to the index.
+     * @param object
+     * The object being added.
+     */
+    void insert(WorldObject object);
+
+    /**
+     * Removes an object from the index. Does nothing if the object is not indexed.
+     * @param object
+     * The object being removed.
+     */
+    void remove(WorldObject object);
+
+    /**
+     * Refreshes the position of an object after it has moved.
+     * Does nothing if the object is not indexed.
+     * @param object
+     * The object that has moved.
+     */
+    void update(WorldObject object);
+
+    /**
+     * Finds every object that could overlap an area.
+     * The results may contain objects that lie near the area but never miss one that overlaps it,
+     * and are given in the order the objects were created, without duplicates.
+     * @param leftBound
+     * X coordinate of the left edge of the area.
+     * @param topBound
+     * Y coordinate of the top edge of the area.
+     * @param rightBound
+     * X coordinate of the right edge of the area.
+     * @param botBound
+     * Y coordinate of the bottom edge of the area.
+     * @param results
+     * The list the objects are added to. It is cleared first.
+     */
+    void query(double leftBound, double topBound, double rightBound, double botBound,
+               ArrayList<WorldObject> results);
+
+    /**
+     *
+     * @return
+     * The number of objects in the index.
+     */
+    int size();
+}
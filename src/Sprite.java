@@ -0,0 +1,171 @@
+import bagel.DrawOptions;
+import bagel.Image;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * Represents an image file used to draw an object.
+ * The size of the image is taken from the dimensions table instead of the decoded texture,
+ * and the texture is only loaded the first time the sprite is drawn.
+ * This allows the world to be simulated without a window.
+ * Once the AssetManager has loaded its atlas, small sprites are drawn from the atlas instead.
+ */
+public class Sprite {
+    /**
+     * The number of rotations a sprite can be drawn with, each a quarter turn more than the one before.
+     */
+    public final static int ROTATION_COUNT = 4;
+    /**
+     * The angle of a quarter turn, in radians.
+     */
+    public final static double QUARTER_TURN = Math.PI/2;
+
+    private final static String DIMENSIONS_FILEPATH = "res/dimensions.csv";
+    private final static int FILEPATH_INPUT = 0;
+    private final static int WIDTH_INPUT = 1;
+    private final static int HEIGHT_INPUT = 2;
+    private final static HashMap<String, double[]> DIMENSIONS = readDimensions();
+    //Options that rotate sprites not drawn from the atlas by each number of quarter turns.
+    //Nothing changes them once made, so every sprite shares them
+    private final static DrawOptions[] ROTATIONS = makeRotations();
+
+    private final String filepath;
+    private final double width;
+    private final double height;
+
+    private Image img;
+
+
+    /**
+     * Instantiates the sprite.
+     * @param filepath
+     * The path to the image file. Must be listed in the dimensions table.
+     */
+    public Sprite(String filepath) {
+        double[] dimensions = DIMENSIONS.get(filepath);
+        if (dimensions == null)
+            throw new IllegalArgumentException(filepath + " is missing from " + DIMENSIONS_FILEPATH);
+
+        this.filepath = filepath;
+        width = dimensions[0];
+        height = dimensions[1];
+    }
+
+    /**
+     * Draws the image centred on a point.
+     * @param xCoordinate
+     * X coordinate of the centre.
+     * @param yCoordinate
+     * Y coordinate of the centre.
+     */
+    public void draw(double xCoordinate, double yCoordinate) {
+        if (!drawFromAtlas(xCoordinate, yCoordinate, 0))
+            getImage().draw(xCoordinate, yCoordinate);
+    }
+
+    /**
+     * Draws the image from its top left corner.
+     * @param xCoordinate
+     * X coordinate of the top left corner.
+     * @param yCoordinate
+     * Y coordinate of the top left corner.
+     */
+    public void drawFromTopLeft(double xCoordinate, double yCoordinate) {
+        if (!drawFromAtlas(xCoordinate + width/2, yCoordinate + height/2, 0))
+            getImage().drawFromTopLeft(xCoordinate, yCoordinate);
+    }
+
+    /**
+     * Draws the image rotated about its centre, placed by the top left corner it has when not rotated.
+     * @param xCoordinate
+     * X coordinate of the top left corner.
+     * @param yCoordinate
+     * Y coordinate of the top left corner.
+     * @param rotation
+     * The number of quarter turns the image is rotated by, from 0 to ROTATION_COUNT - 1.
+     */
+    public void drawFromTopLeft(double xCoordinate, double yCoordinate, int rotation) {
+        if (!drawFromAtlas(xCoordinate + width/2, yCoordinate + height/2, rotation))
+            getImage().drawFromTopLeft(xCoordinate, yCoordinate, ROTATIONS[rotation]);
+    }
+
+    //Lets go of the sprite's own image once it is drawn from the atlas
+    private boolean drawFromAtlas(double centreX, double centreY, int rotation) {
+        if (!AssetManager.drawFromAtlas(filepath, centreX, centreY, rotation))
+            return false;
+
+        img = null;
+        return true;
+    }
+
+    private Image getImage() {
+        if (img == null)
+            img = AssetManager.getImage(filepath);
+        return img;
+    }
+
+    private static DrawOptions[] makeRotations() {
+        DrawOptions[] rotations = new DrawOptions[ROTATION_COUNT];
+        for (int rotation = 0; rotation < ROTATION_COUNT; rotation++)
+            rotations[rotation] = new DrawOptions().setRotation(rotation * QUARTER_TURN);
+        return rotations;
+    }
+
+    //Reads the width and height of every image file from the dimensions table
+    private static HashMap<String, double[]> readDimensions() {
+        HashMap<String, double[]> dimensions = new HashMap<>();
+
+        try (BufferedReader dimensionsFile = new BufferedReader(new FileReader(DIMENSIONS_FILEPATH))) {
+            String text;
+            while ((text = dimensionsFile.readLine()) != null) {
+                String[] entry = text.split(",");
+                dimensions.put(entry[FILEPATH_INPUT], new double[] {
+                        Double.parseDouble(entry[WIDTH_INPUT]),
+                        Double.parseDouble(entry[HEIGHT_INPUT])
+                });
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return dimensions;
+    }
+
+    //Get methods
+    /**
+     *
+     * @return
+     * The path of every image file in the dimensions table.
+     */
+    public static Collection<String> getFilepaths() {
+        return Collections.unmodifiableCollection(DIMENSIONS.keySet());
+    }
+    /**
+     *
+     * @return
+     * The path to the image file.
+     */
+    public String getFilepath() {
+        return filepath;
+    }
+    /**
+     *
+     * @return
+     * The width of the image.
+     */
+    public double getWidth() {
+        return width;
+    }
+    /**
+     *
+     * @return
+     * The height of the image.
+     */
+    public double getHeight() {
+        return height;
+    }
+}
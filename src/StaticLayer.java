@@ -0,0 +1,356 @@
+import bagel.Image;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The background of a world with its walls and trees drawn onto it, since those never move.
+ * The layer is cut into square tiles that are each composed once, starting a tile ahead of the view,
+ * so a frame draws one image per visible tile instead of one per obstacle.
+ * Bagel cannot draw into a texture, so tiles are composed in memory and written to temporary files
+ * on a thread of their own, and only loaded as images on the thread that draws the game.
+ * Bagel cannot free a texture either, so every loaded tile keeps about 4 MB of texture memory until the game closes,
+ * even once it is invalidated. At most MAX_LOADED_TILES tiles are ever loaded by all layers together.
+ * Past that budget, tiles are no longer composed and the layer draws the background and obstacles one by one.
+ * It also draws them one by one until the visible tiles are ready, where the view leaves the area it was made for,
+ * and if composing fails. Composed tiles the view has moved away from are deleted before they are ever loaded.
+ */
+public class StaticLayer {
+    /**
+     * The width and height of a tile.
+     */
+    public final static int TILE_SIZE = 1024;
+    /**
+     * The most tiles loaded as images over the whole game, by every layer together.
+     */
+    public final static int MAX_LOADED_TILES = 32;
+
+    private final static String TILE_PREFIX = "shadow-dimension-layer";
+    private final static String TILE_FORMAT = "png";
+    //Tiles this far outside the view are composed before the view reaches them
+    private final static int TILES_AHEAD = 1;
+
+    //What each tile holds
+    private final static byte NOT_COMPOSED = 0;
+    private final static byte COMPOSING = 1;
+    private final static byte LOADED = 2;
+    private final static byte EMPTY = 3;
+
+    private final static ExecutorService COMPOSER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "static-layer-composer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static File tileDirectory;
+    //Only changed on the thread that draws the game, and never goes down since textures are never freed
+    private static volatile int loadedTiles = 0;
+
+    private final Sprite background;
+    private final SpatialIndex objects;
+    private final BoundsStore store;
+    private final ArrayList<WorldObject> tileObstacles = new ArrayList<>();
+
+    //The tiles cover the area the layer was made for in a grid of columns and rows, indexed row by row
+    private final int firstColumn, firstRow, columnCount, rowCount;
+    private final byte[] states;
+    private final ArrayList<CompletableFuture<File>> composing;
+    private final File[] tileFiles;
+    private final Image[] tiles;
+    private boolean failed = false;
+
+    //The tiles prefetched last, so tiles the view moved away from are only looked for when it moves
+    private int prefetchMinColumn = 0, prefetchMaxColumn = -1, prefetchMinRow = 0, prefetchMaxRow = -1;
+
+
+    /**
+     * Instantiates the layer. Nothing is composed until the layer is drawn or prefetched.
+     * @param background
+     * The background, with its top left corner at the origin of the world.
+     * @param objects
+     * Index of the objects of the world, used to find the obstacles on each tile.
+     * @param store
+     * The store holding the boundaries of the objects of the world.
+     * @param area
+     * The area the layer can be drawn in, the one the camera shows.
+     */
+    public StaticLayer(Sprite background, SpatialIndex objects, BoundsStore store, Boundary area) {
+        this.background = background;
+        this.objects = objects;
+        this.store = store;
+
+        firstColumn = Math.floorDiv((int) Math.floor(area.getLeftBound()), TILE_SIZE);
+        firstRow = Math.floorDiv((int) Math.floor(area.getTopBound()), TILE_SIZE);
+        columnCount = Math.floorDiv((int) Math.ceil(area.getRightBound()) - 1, TILE_SIZE) - firstColumn + 1;
+        rowCount = Math.floorDiv((int) Math.ceil(area.getBotBound()) - 1, TILE_SIZE) - firstRow + 1;
+
+        int tileCount = Math.max(columnCount, 0) * Math.max(rowCount, 0);
+        states = new byte[tileCount];
+        composing = new ArrayList<>(Collections.nCopies(tileCount, null));
+        tileFiles = new File[tileCount];
+        tiles = new Image[tileCount];
+    }
+
+    /**
+     * Draws the part of the layer inside a view of the world, and starts composing the tiles around it.
+     * @param viewLeft
+     * X coordinate of the left edge of the view in the world.
+     * @param viewTop
+     * Y coordinate of the top edge of the view in the world.
+     * @param viewRight
+     * X coordinate of the right edge of the view in the world.
+     * @param viewBot
+     * Y coordinate of the bottom edge of the view in the world.
+     */
+    public void draw(double viewLeft, double viewTop, double viewRight, double viewBot) {
+        if (failed) {
+            drawUncomposed(viewLeft, viewTop, viewRight, viewBot);
+            return;
+        }
+        prefetch(viewLeft, viewTop, viewRight, viewBot);
+
+        int minColumn = Math.floorDiv((int) Math.floor(viewLeft), TILE_SIZE);
+        int maxColumn = Math.floorDiv((int) Math.ceil(viewRight) - 1, TILE_SIZE);
+        int minRow = Math.floorDiv((int) Math.floor(viewTop), TILE_SIZE);
+        int maxRow = Math.floorDiv((int) Math.ceil(viewBot) - 1, TILE_SIZE);
+
+        boolean ready = (minColumn >= firstColumn && maxColumn < firstColumn + columnCount &&
+                minRow >= firstRow && maxRow < firstRow + rowCount);
+        for (int row = minRow; ready && row <= maxRow; row++)
+            for (int column = minColumn; ready && column <= maxColumn; column++)
+                ready = loadTile(tileIndex(column, row));
+        if (failed || !ready) {
+            drawUncomposed(viewLeft, viewTop, viewRight, viewBot);
+            return;
+        }
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                int tile = tileIndex(column, row);
+                if (states[tile] == LOADED)
+                    tiles[tile].drawFromTopLeft((double) column * TILE_SIZE - viewLeft,
+                            (double) row * TILE_SIZE - viewTop);
+            }
+        }
+    }
+
+    /**
+     * Starts composing the tiles of a view of the world and the tiles around it that are not composed yet,
+     * and deletes the composed tiles that were not loaded and are no longer around the view.
+     * Returns straight away. Only meant to be called on the thread that draws the world,
+     * or on the thread that builds it before it is handed to the game.
+     * @param viewLeft
+     * X coordinate of the left edge of the view in the world.
+     * @param viewTop
+     * Y coordinate of the top edge of the view in the world.
+     * @param viewRight
+     * X coordinate of the right edge of the view in the world.
+     * @param viewBot
+     * Y coordinate of the bottom edge of the view in the world.
+     */
+    public void prefetch(double viewLeft, double viewTop, double viewRight, double viewBot) {
+        int minColumn = Math.max(Math.floorDiv((int) Math.floor(viewLeft), TILE_SIZE) - TILES_AHEAD, firstColumn);
+        int maxColumn = Math.min(Math.floorDiv((int) Math.ceil(viewRight) - 1, TILE_SIZE) + TILES_AHEAD,
+                firstColumn + columnCount - 1);
+        int minRow = Math.max(Math.floorDiv((int) Math.floor(viewTop), TILE_SIZE) - TILES_AHEAD, firstRow);
+        int maxRow = Math.min(Math.floorDiv((int) Math.ceil(viewBot) - 1, TILE_SIZE) + TILES_AHEAD,
+                firstRow + rowCount - 1);
+
+        if (minColumn != prefetchMinColumn || maxColumn != prefetchMaxColumn ||
+                minRow != prefetchMinRow || maxRow != prefetchMaxRow) {
+            for (int row = prefetchMinRow; row <= prefetchMaxRow; row++)
+                for (int column = prefetchMinColumn; column <= prefetchMaxColumn; column++)
+                    if ((column < minColumn || column > maxColumn || row < minRow || row > maxRow) &&
+                            states[tileIndex(column, row)] == COMPOSING)
+                        discardTile(tileIndex(column, row));
+            prefetchMinColumn = minColumn;
+            prefetchMaxColumn = maxColumn;
+            prefetchMinRow = minRow;
+            prefetchMaxRow = maxRow;
+        }
+
+        if (loadedTiles >= MAX_LOADED_TILES)
+            return;
+        for (int row = minRow; row <= maxRow; row++)
+            for (int column = minColumn; column <= maxColumn; column++)
+                if (states[tileIndex(column, row)] == NOT_COMPOSED)
+                    startComposing(column, row);
+    }
+
+    /**
+     * Forgets every composed tile and deletes its file, so they are composed again the next time they are drawn.
+     * Called once the level is no longer played.
+     */
+    public void invalidate() {
+        for (int tile = 0; tile < states.length; tile++)
+            discardTile(tile);
+        failed = false;
+    }
+
+    /**
+     * Forgets the composed tiles touching an area and deletes their files,
+     * so they are composed again the next time they are drawn.
+     * Called with the old and new boundaries of walls and trees changed by an edit of the level.
+     * @param leftBound
+     * X coordinate of the left edge of the area.
+     * @param topBound
+     * Y coordinate of the top edge of the area.
+     * @param rightBound
+     * X coordinate of the right edge of the area.
+     * @param botBound
+     * Y coordinate of the bottom edge of the area.
+     */
+    public void invalidate(double leftBound, double topBound, double rightBound, double botBound) {
+        int minColumn = Math.max(Math.floorDiv((int) Math.floor(leftBound), TILE_SIZE), firstColumn);
+        int maxColumn = Math.min(Math.floorDiv((int) Math.ceil(rightBound), TILE_SIZE),
+                firstColumn + columnCount - 1);
+        int minRow = Math.max(Math.floorDiv((int) Math.floor(topBound), TILE_SIZE), firstRow);
+        int maxRow = Math.min(Math.floorDiv((int) Math.ceil(botBound), TILE_SIZE), firstRow + rowCount - 1);
+
+        for (int row = minRow; row <= maxRow; row++)
+            for (int column = minColumn; column <= maxColumn; column++)
+                discardTile(tileIndex(column, row));
+    }
+
+    private int tileIndex(int column, int row) {
+        return (row - firstRow) * columnCount + (column - firstColumn);
+    }
+
+    //Finds what a tile shows on the calling thread, since the index is not safe to read from another one,
+    //and leaves composing and writing it to the composer
+    private void startComposing(int column, int row) {
+        int tile = tileIndex(column, row);
+        double left = (double) column * TILE_SIZE, top = (double) row * TILE_SIZE;
+        objects.query(left, top, left + TILE_SIZE, top + TILE_SIZE, tileObstacles);
+        tileObstacles.removeIf(object -> store.getType(object.getSlot()) != BoundsStore.OBSTACLE);
+
+        boolean hasBackground = (left < background.getWidth() && left + TILE_SIZE > 0 &&
+                top < background.getHeight() && top + TILE_SIZE > 0);
+        if (!hasBackground && tileObstacles.isEmpty()) {
+            states[tile] = EMPTY;
+            return;
+        }
+
+        //The background first, then every obstacle touching the tile in the order they were created
+        int imageCount = tileObstacles.size() + (hasBackground ? 1 : 0);
+        String[] filepaths = new String[imageCount];
+        int[] positions = new int[2 * imageCount];
+        int image = 0;
+        if (hasBackground) {
+            filepaths[image] = background.getFilepath();
+            positions[0] = (int) -left;
+            positions[1] = (int) -top;
+            image++;
+        }
+        for (WorldObject obstacle : tileObstacles) {
+            filepaths[image] = obstacle.getImg().getFilepath();
+            positions[2 * image] = (int) Math.round(obstacle.getLeftBound() - left);
+            positions[2 * image + 1] = (int) Math.round(obstacle.getTopBound() - top);
+            image++;
+        }
+
+        states[tile] = COMPOSING;
+        composing.set(tile, CompletableFuture.supplyAsync(() -> composeTile(filepaths, positions), COMPOSER));
+    }
+
+    //Loads a tile once it is composed and the budget allows it, showing if it is ready to be drawn
+    private boolean loadTile(int tile) {
+        if (states[tile] == LOADED || states[tile] == EMPTY)
+            return true;
+        CompletableFuture<File> tileFile = composing.get(tile);
+        if (tileFile == null || !tileFile.isDone() || loadedTiles >= MAX_LOADED_TILES)
+            return false;
+
+        composing.set(tile, null);
+        try {
+            File file = tileFile.get();
+            tileFiles[tile] = file;
+            tiles[tile] = new Image(file.getPath());
+            states[tile] = LOADED;
+            loadedTiles++;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+            failed = true;
+        }
+        states[tile] = NOT_COMPOSED;
+        return false;
+    }
+
+    //The image of a loaded tile is dropped but its texture stays, and still counts towards the budget.
+    //The file of the tile is deleted, straight away or as soon as the composer has written it
+    private void discardTile(int tile) {
+        states[tile] = NOT_COMPOSED;
+        tiles[tile] = null;
+        if (tileFiles[tile] != null) {
+            tileFiles[tile].delete();
+            tileFiles[tile] = null;
+        }
+
+        CompletableFuture<File> tileFile = composing.get(tile);
+        if (tileFile != null) {
+            tileFile.thenAccept(File::delete);
+            composing.set(tile, null);
+        }
+    }
+
+    //Draws images onto a tile and writes it to a file, run on the composer
+    private static File composeTile(String[] filepaths, int[] positions) {
+        try {
+            BufferedImage tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = tile.createGraphics();
+            try {
+                for (int image = 0; image < filepaths.length; image++)
+                    graphics.drawImage(AssetManager.getDecoded(filepaths[image]),
+                            positions[2 * image], positions[2 * image + 1], null);
+            } finally {
+                graphics.dispose();
+            }
+
+            File tileFile = File.createTempFile(TILE_PREFIX, "." + TILE_FORMAT, getTileDirectory());
+            ImageIO.write(tile, TILE_FORMAT, tileFile);
+            return tileFile;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //Tiles are written to one directory, which is emptied and deleted when the game closes
+    private static synchronized File getTileDirectory() throws IOException {
+        if (tileDirectory == null) {
+            File directory = Files.createTempDirectory(TILE_PREFIX).toFile();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                File[] files = directory.listFiles();
+                if (files != null)
+                    for (File file : files)
+                        file.delete();
+                directory.delete();
+            }, "static-layer-cleanup"));
+            tileDirectory = directory;
+        }
+        return tileDirectory;
+    }
+
+    private void drawUncomposed(double viewLeft, double viewTop, double viewRight, double viewBot) {
+        background.drawFromTopLeft(-viewLeft, -viewTop);
+
+        objects.query(viewLeft, viewTop, viewRight, viewBot, tileObstacles);
+        for (int i = 0; i < tileObstacles.size(); i++) {
+            WorldObject object = tileObstacles.get(i);
+            if (store.getType(object.getSlot()) == BoundsStore.OBSTACLE)
+                object.getImg().drawFromTopLeft(object.getLeftBound() - viewLeft, object.getTopBound() - viewTop);
+        }
+    }
+}
@@ -11,12 +11,12 @@ public class Text {
     private final static String FONT_FILEPATH = "res/frostbite.ttf";
     private final static int DEFAULT_FONT_SIZE = 75;
     private final Font DEFAULT_FONT =
-            new Font(FONT_FILEPATH, DEFAULT_FONT_SIZE);
+            FontCache.getFont(FONT_FILEPATH, DEFAULT_FONT_SIZE);
 
     //Instruction font definitions
     private final static int INSTRUCTION_FONT_SIZE = 40;
     private final Font INSTRUCTION_FONT =
-            new Font(FONT_FILEPATH, INSTRUCTION_FONT_SIZE);
+            FontCache.getFont(FONT_FILEPATH, INSTRUCTION_FONT_SIZE);
 
     //Title text definitions
     private final static String TITLE = "SHADOW DIMENSION";
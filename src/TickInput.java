@@ -0,0 +1,73 @@
+import bagel.Input;
+import bagel.Keys;
+
+/**
+ * The keys that act on a world in one update, packed into the bits of an int.
+ * Keeping the keys as plain data lets a session be recorded and replayed without a window.
+ */
+public class TickInput {
+    /**
+     * Bit of the up arrow, held down.
+     */
+    public final static int UP = 1 << ShadowDimension.UP;
+    /**
+     * Bit of the down arrow, held down.
+     */
+    public final static int DOWN = 1 << ShadowDimension.DOWN;
+    /**
+     * Bit of the left arrow, held down.
+     */
+    public final static int LEFT = 1 << ShadowDimension.LEFT;
+    /**
+     * Bit of the right arrow, held down.
+     */
+    public final static int RIGHT = 1 << ShadowDimension.RIGHT;
+    /**
+     * Bit of the A key, pressed to attack.
+     */
+    public final static int ATTACK = 1 << 4;
+    /**
+     * Bit of the L key, pressed to speed the game up.
+     */
+    public final static int SPEED_UP = 1 << 5;
+    /**
+     * Bit of the K key, pressed to slow the game down.
+     */
+    public final static int SLOW_DOWN = 1 << 6;
+    /**
+     * The bits of the keys that act for as long as they are held.
+     */
+    public final static int HELD_KEYS = UP | DOWN | LEFT | RIGHT;
+    /**
+     * The bits of the keys that act once each time they are pressed.
+     */
+    public final static int PRESSED_KEYS = ATTACK | SPEED_UP | SLOW_DOWN;
+
+    private TickInput() {}
+
+    /**
+     * Reads the keys that act on a world from the window's input.
+     * @param input
+     * The input of the current frame.
+     * @return
+     * The bits of the keys held or pressed.
+     */
+    public static int read(Input input) {
+        int keys = 0;
+        if (input.isDown(Keys.UP))
+            keys |= UP;
+        if (input.isDown(Keys.DOWN))
+            keys |= DOWN;
+        if (input.isDown(Keys.LEFT))
+            keys |= LEFT;
+        if (input.isDown(Keys.RIGHT))
+            keys |= RIGHT;
+        if (input.wasPressed(Keys.A))
+            keys |= ATTACK;
+        if (input.wasPressed(Keys.L))
+            keys |= SPEED_UP;
+        if (input.wasPressed(Keys.K))
+            keys |= SLOW_DOWN;
+        return keys;
+    }
+}
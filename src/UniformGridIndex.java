@@ -0,0 +1,282 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A spatial index that splits an area of the world into square cells of equal size.
+ * Each object is listed in every cell its boundary touches,
+ * so a query only looks at the objects in the cells the queried area passes through.
+ * Objects lying outside the area are kept in the nearest edge cells.
+ * Cells list the objects' slots in the BoundsStore of the world, so the index only works
+ * for objects of that store.
+ */
+public class UniformGridIndex implements SpatialIndex {
+    /**
+     * The default width and height of a cell, roughly the size of one sprite.
+     */
+    public final static double DEFAULT_CELL_SIZE = 64;
+    private final static int MAX_CELLS = 1 << 22;
+    private final static int INITIAL_CELL_CAPACITY = 2;
+    private final static int INSERTION_SORT_LIMIT = 16;
+
+    private final BoundsStore store;
+    private final double originX, originY;
+    private final double cellSize;
+    private final int columns, rows;
+    private final int[][] cellSlots;
+    private final int[] cellSizes;
+
+    //The cells each slot is listed in
+    private boolean[] indexed = new boolean[0];
+    private int[] minColumns = new int[0], maxColumns = new int[0];
+    private int[] minRows = new int[0], maxRows = new int[0];
+    private int size = 0;
+
+
+    /**
+     * Instantiates an empty index with the default cell size.
+     * @param area
+     * The area of the world the cells cover.
+     * @param store
+     * The store holding the boundaries of the objects being indexed.
+     */
+    public UniformGridIndex(Boundary area, BoundsStore store) {
+        this(area, store, DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Instantiates an empty index.
+     * The cells are made larger if the area would otherwise need too many of them.
+     * @param area
+     * The area of the world the cells cover.
+     * @param store
+     * The store holding the boundaries of the objects being indexed.
+     * @param cellSize
+     * The width and height of a cell.
+     */
+    public UniformGridIndex(Boundary area, BoundsStore store, double cellSize) {
+        this(layout(area, cellSize), store);
+    }
+
+    /**
+     * Instantiates an empty index with a known layout, such as one stored in a compiled level.
+     * @param layout
+     * The position, cell size and number of cells of the index.
+     * @param store
+     * The store holding the boundaries of the objects being indexed.
+     */
+    public UniformGridIndex(GridLayout layout, BoundsStore store) {
+        this.store = store;
+        originX = layout.getOriginX();
+        originY = layout.getOriginY();
+        cellSize = layout.getCellSize();
+        columns = layout.getColumns();
+        rows = layout.getRows();
+        cellSlots = new int[columns * rows][];
+        cellSizes = new int[columns * rows];
+    }
+
+    /**
+     * Works out the layout of an index covering an area.
+     * The cells are made larger if the area would otherwise need too many of them.
+     * @param area
+     * The area of the world the cells cover.
+     * @param cellSize
+     * The preferred width and height of a cell.
+     * @return
+     * The layout of the index.
+     */
+    public static GridLayout layout(Boundary area, double cellSize) {
+        double width = Math.max(area.getRightBound() - area.getLeftBound(), cellSize);
+        double height = Math.max(area.getBotBound() - area.getTopBound(), cellSize);
+        while ((width / cellSize) * (height / cellSize) > MAX_CELLS)
+            cellSize *= 2;
+
+        return new GridLayout(area.getLeftBound(), area.getTopBound(), cellSize,
+                (int) Math.ceil(width / cellSize), (int) Math.ceil(height / cellSize));
+    }
+
+    @Override
+    public void insert(WorldObject object) {
+        int slot = object.getSlot();
+        if (slot >= indexed.length)
+            growSlots(slot);
+        if (indexed[slot])
+            return;
+
+        indexed[slot] = true;
+        setCellRange(slot);
+        addToCells(slot);
+        size++;
+    }
+
+    @Override
+    public void remove(WorldObject object) {
+        int slot = object.getSlot();
+        if (slot >= indexed.length || !indexed[slot])
+            return;
+
+        removeFromCells(slot);
+        indexed[slot] = false;
+        size--;
+    }
+
+    @Override
+    public void update(WorldObject object) {
+        int slot = object.getSlot();
+        if (slot >= indexed.length || !indexed[slot])
+            return;
+
+        if (minColumns[slot] == column(store.getLeftBound(slot)) &&
+                maxColumns[slot] == column(store.getRightBound(slot)) &&
+                minRows[slot] == row(store.getTopBound(slot)) &&
+                maxRows[slot] == row(store.getBotBound(slot)))
+            return;
+
+        removeFromCells(slot);
+        setCellRange(slot);
+        addToCells(slot);
+    }
+
+    @Override
+    public void query(double leftBound, double topBound, double rightBound, double botBound,
+                      ArrayList<WorldObject> results) {
+        results.clear();
+        if (leftBound > rightBound || topBound > botBound)
+            return;
+
+        int minColumn = column(leftBound), maxColumn = column(rightBound);
+        int minRow = row(topBound), maxRow = row(botBound);
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                int cellNum = row * columns + column;
+                int[] slots = cellSlots[cellNum];
+
+                for (int i = 0; i < cellSizes[cellNum]; i++) {
+                    int slot = slots[i];
+                    //An object spanning several cells is only reported by the first cell it shares with the area
+                    if (column == Math.max(minColumns[slot], minColumn) && row == Math.max(minRows[slot], minRow))
+                        results.add(store.getObject(slot));
+                }
+            }
+        }
+
+        sortByCreation(results);
+    }
+
+    private void setCellRange(int slot) {
+        minColumns[slot] = column(store.getLeftBound(slot));
+        maxColumns[slot] = column(store.getRightBound(slot));
+        minRows[slot] = row(store.getTopBound(slot));
+        maxRows[slot] = row(store.getBotBound(slot));
+    }
+
+    private void addToCells(int slot) {
+        for (int row = minRows[slot]; row <= maxRows[slot]; row++) {
+            for (int column = minColumns[slot]; column <= maxColumns[slot]; column++) {
+                int cellNum = row * columns + column;
+                if (cellSlots[cellNum] == null)
+                    cellSlots[cellNum] = new int[INITIAL_CELL_CAPACITY];
+                else if (cellSizes[cellNum] == cellSlots[cellNum].length)
+                    cellSlots[cellNum] = Arrays.copyOf(cellSlots[cellNum], cellSizes[cellNum] * 2);
+
+                cellSlots[cellNum][cellSizes[cellNum]++] = slot;
+            }
+        }
+    }
+
+    //Order within a cell does not matter, so the last slot of the cell takes the removed one's place
+    private void removeFromCells(int slot) {
+        for (int row = minRows[slot]; row <= maxRows[slot]; row++) {
+            for (int column = minColumns[slot]; column <= maxColumns[slot]; column++) {
+                int cellNum = row * columns + column;
+                int[] slots = cellSlots[cellNum];
+                for (int i = 0; i < cellSizes[cellNum]; i++) {
+                    if (slots[i] == slot) {
+                        slots[i] = slots[--cellSizes[cellNum]];
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void growSlots(int slot) {
+        int capacity = Math.max(slot + 1, indexed.length * 2);
+        indexed = Arrays.copyOf(indexed, capacity);
+        minColumns = Arrays.copyOf(minColumns, capacity);
+        maxColumns = Arrays.copyOf(maxColumns, capacity);
+        minRows = Arrays.copyOf(minRows, capacity);
+        maxRows = Arrays.copyOf(maxRows, capacity);
+    }
+
+    private int column(double xCoordinate) {
+        int column = (int) Math.floor((xCoordinate - originX) / cellSize);
+        return Math.min(Math.max(column, 0), columns - 1);
+    }
+
+    private int row(double yCoordinate) {
+        int row = (int) Math.floor((yCoordinate - originY) / cellSize);
+        return Math.min(Math.max(row, 0), rows - 1);
+    }
+
+    //Collision queries usually find a handful of objects, so an insertion sort is enough for them.
+    //Larger results are heap sorted in place, since a library sort of that many objects allocates
+    private static void sortByCreation(ArrayList<WorldObject> results) {
+        if (results.size() > INSERTION_SORT_LIMIT) {
+            heapSortByCreation(results);
+            return;
+        }
+
+        for (int i = 1; i < results.size(); i++) {
+            WorldObject object = results.get(i);
+            int j = i - 1;
+            while (j >= 0 && results.get(j).getSlot() > object.getSlot()) {
+                results.set(j + 1, results.get(j));
+                j--;
+            }
+            results.set(j + 1, object);
+        }
+    }
+
+    //Slots are unique, so the order is the same as with a stable sort
+    private static void heapSortByCreation(ArrayList<WorldObject> results) {
+        int size = results.size();
+        for (int root = size/2 - 1; root >= 0; root--)
+            siftDown(results, root, size);
+        for (int end = size - 1; end > 0; end--) {
+            WorldObject largest = results.get(0);
+            results.set(0, results.get(end));
+            results.set(end, largest);
+            siftDown(results, 0, end);
+        }
+    }
+
+    private static void siftDown(ArrayList<WorldObject> results, int root, int end) {
+        WorldObject object = results.get(root);
+        int child;
+        while ((child = 2*root + 1) < end) {
+            if (child + 1 < end && results.get(child + 1).getSlot() > results.get(child).getSlot())
+                child++;
+            if (results.get(child).getSlot() <= object.getSlot())
+                break;
+            results.set(root, results.get(child));
+            root = child;
+        }
+        results.set(root, object);
+    }
+
+    //Get methods
+    @Override
+    public int size() {
+        return size;
+    }
+    /**
+     *
+     * @return
+     * The position, cell size and number of cells of the index.
+     */
+    public GridLayout getLayout() {
+        return new GridLayout(originX, originY, cellSize, columns, rows);
+    }
+}
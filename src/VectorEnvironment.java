@@ -0,0 +1,362 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Steps many independent worlds of the same level in lockstep without a window,
+ * for automated players and batch experiments.
+ * Each step gives every world the keys in its place of the action buffer, updates every world once,
+ * with the worlds spread over a thread pool, and writes what each world's player sees into the observation,
+ * reward and done buffers. The buffers are allocated once and reused, and so are the lists used to observe,
+ * so no actions, observations or rewards are allocated per step.
+ * A world whose level is over, or that reached the step limit, is built again from the level file with a new seed
+ * in the same step. Its done flag is set, its reward is that of the episode's last update,
+ * and its observation is the first of the new episode.
+ *
+ * Observation of each world, OBSERVATION_SIZE doubles from world * OBSERVATION_SIZE:
+ * the player's x and y coordinates and health, then for each of the NEARBY_ENEMIES enemies nearest the player
+ * within NEARBY_RADIUS, nearest first, its centre's x and y relative to the player's centre and its health.
+ * Places for missing enemies are 0.
+ * Usage: VectorEnvironment levelCsv [worlds] [steps] [threads] [seed]
+ */
+public class VectorEnvironment {
+    /**
+     * The number of nearest enemies in an observation.
+     */
+    public final static int NEARBY_ENEMIES = 8;
+    /**
+     * The distance from the player's centre within which enemies are observed.
+     */
+    public final static double NEARBY_RADIUS = 400;
+    /**
+     * The number of doubles observed of each world.
+     */
+    public final static int OBSERVATION_SIZE = 3 + 3*NEARBY_ENEMIES;
+    /**
+     * The number of updates an episode lasts at most, a minute at 60 updates per second.
+     */
+    public final static int DEFAULT_MAX_EPISODE_STEPS = 60*60;
+
+    private final static double STEP_MS = 1000/60.0;
+    private final static int LEVEL_NUM = 0;
+    //Rewards for each point of health the player loses, each enemy defeated and beating the level
+    private final static double HP_LOST_REWARD = -1;
+    private final static double DEFEAT_REWARD = 10;
+    private final static double WIN_REWARD = 100;
+
+    private final static int DEFAULT_WORLDS = 64;
+    private final static int DEFAULT_STEPS = 1000;
+    //Ranges are split until there are about this many per thread, so uneven worlds even out
+    private final static int TASKS_PER_THREAD = 4;
+
+    private final String levelFilepath;
+    private final int worldCount;
+    private final int maxEpisodeSteps;
+    private final ForkJoinPool pool;
+    private final int sequentialThreshold;
+    private final World[] worlds;
+
+    private final int[] actions;
+    private final double[] observations;
+    private final double[] rewards;
+    private final boolean[] dones;
+
+    //The seed of each world's next episode, and each world's reused arrays for finding its nearest enemies
+    private final long[] nextSeeds;
+    private final int[] episodeSteps;
+    private final ArrayList<ArrayList<WorldObject>> nearbyCandidates = new ArrayList<>();
+    private final Enemy[][] nearestEnemies;
+    private final double[][] nearestDistances;
+
+    private long totalSteps = 0;
+    private long episodes = 0;
+    private long steppingNs = 0;
+
+
+    /**
+     * Instantiates the environment and builds every world.
+     * @param levelFilepath
+     * The path to the file of the level every world plays, read with BinaryLevelReader if it is compiled.
+     * @param worldCount
+     * The number of worlds.
+     * @param seed
+     * The seed the worlds' seeds are derived from. World i starts from seed + i,
+     * and each new episode of a world adds the number of worlds.
+     * @param maxEpisodeSteps
+     * The number of updates after which an episode ends even if the level is not over.
+     * @param pool
+     * The pool the worlds are stepped on.
+     * @throws IOException
+     * If the level file cannot be read.
+     * @throws IllegalArgumentException
+     * If there are no worlds or episodes cannot last a step.
+     */
+    public VectorEnvironment(String levelFilepath, int worldCount, long seed, int maxEpisodeSteps,
+                             ForkJoinPool pool) throws IOException {
+        if (worldCount < 1)
+            throw new IllegalArgumentException("There must be at least one world");
+        if (maxEpisodeSteps < 1)
+            throw new IllegalArgumentException("Episodes must last at least one step");
+
+        this.levelFilepath = levelFilepath;
+        this.worldCount = worldCount;
+        this.maxEpisodeSteps = maxEpisodeSteps;
+        this.pool = pool;
+        sequentialThreshold = Math.max(1, worldCount / (pool.getParallelism() * TASKS_PER_THREAD));
+        worlds = new World[worldCount];
+        actions = new int[worldCount];
+        observations = new double[worldCount * OBSERVATION_SIZE];
+        rewards = new double[worldCount];
+        dones = new boolean[worldCount];
+        nextSeeds = new long[worldCount];
+        episodeSteps = new int[worldCount];
+        nearestEnemies = new Enemy[worldCount][NEARBY_ENEMIES];
+        nearestDistances = new double[worldCount][NEARBY_ENEMIES];
+
+        for (int world = 0; world < worldCount; world++) {
+            nextSeeds[world] = seed + world;
+            nearbyCandidates.add(new ArrayList<>());
+        }
+        for (int world = 0; world < worldCount; world++) {
+            startEpisode(world);
+            observe(world);
+        }
+    }
+
+    /**
+     * The entry point for the program.
+     * Steps the worlds with random keys and reports the steps per second of every world together.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: VectorEnvironment levelCsv [worlds] [steps] [threads] [seed]");
+            return;
+        }
+
+        int worldCount = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_WORLDS;
+        int steps = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_STEPS;
+        int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = (args.length > 4) ? Long.parseLong(args[4]) : 0;
+
+        long startNs = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        VectorEnvironment environment = new VectorEnvironment(BinaryLevelReader.preferCompiled(args[0]), worldCount,
+                seed, DEFAULT_MAX_EPISODE_STEPS, pool);
+        System.out.printf("Built %d worlds in %.1f ms%n", worldCount, (System.nanoTime() - startNs) / 1e6);
+
+        //Random keys from a generator kept in a long, so choosing them allocates nothing
+        long keyState = seed ^ 0x9E3779B97F4A7C15L;
+        int[] actions = environment.getActions();
+        for (int step = 0; step < steps; step++) {
+            for (int world = 0; world < worldCount; world++) {
+                keyState ^= keyState << 13;
+                keyState ^= keyState >>> 7;
+                keyState ^= keyState << 17;
+                actions[world] = (int) keyState & (TickInput.HELD_KEYS | TickInput.ATTACK);
+            }
+            environment.step();
+        }
+
+        System.out.printf("Stepped %d worlds %d times on %d threads: %d steps in %.1f ms (%.0f steps/s), " +
+                        "%d episodes finished%n", worldCount, steps, threads, environment.getTotalSteps(),
+                environment.getSteppingNs() / 1e6, environment.getStepsPerSecond(), environment.getEpisodes());
+        pool.shutdown();
+    }
+
+    /**
+     * Steps every world once with the keys in the action buffer, and fills the observation, reward and done buffers.
+     * @throws UncheckedIOException
+     * If a world that finished its episode cannot be built again from the level file.
+     */
+    public void step() {
+        long startNs = System.nanoTime();
+        if (worldCount <= sequentialThreshold)
+            stepWorlds(0, worldCount);
+        else
+            pool.invoke(new WorldStepTask(this, sequentialThreshold, 0, worldCount));
+
+        totalSteps += worldCount;
+        steppingNs += System.nanoTime() - startNs;
+        for (boolean done : dones)
+            if (done)
+                episodes++;
+    }
+
+    /**
+     * Steps a range of the worlds once. Each world only touches its own places in the buffers,
+     * so ranges can be stepped in parallel.
+     * @param start
+     * Index of the first world stepped.
+     * @param end
+     * Index after the last world stepped.
+     */
+    public void stepWorlds(int start, int end) {
+        for (int world = start; world < end; world++) {
+            World level = worlds[world];
+            Player player = level.getPlayer();
+            int hpBefore = player.getHp().getValue();
+            int enemiesBefore = level.getEnemies().size();
+
+            level.controlPlayer(actions[world]);
+            level.updateWorld(STEP_MS);
+            episodeSteps[world]++;
+
+            double reward = (hpBefore - player.getHp().getValue()) * HP_LOST_REWARD +
+                    (enemiesBefore - level.getEnemies().size()) * DEFEAT_REWARD;
+            boolean won = level.hasWon();
+            if (won)
+                reward += WIN_REWARD;
+            rewards[world] = reward;
+            dones[world] = (won || level.hasLost() || episodeSteps[world] >= maxEpisodeSteps);
+
+            if (dones[world]) {
+                try {
+                    startEpisode(world);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            observe(world);
+        }
+    }
+
+    //Builds a world again, updated on the pool's threads only, so its enemies are split over the same pool
+    private void startEpisode(int world) throws IOException {
+        World level = new World(LEVEL_NUM, levelFilepath, nextSeeds[world]);
+        level.setEnemyPool(worldCount < pool.getParallelism() ? pool : null);
+        nextSeeds[world] += worldCount;
+        episodeSteps[world] = 0;
+        worlds[world] = level;
+    }
+
+    //Writes the player's state and its nearest enemies, found with one index query around the player
+    private void observe(int world) {
+        World level = worlds[world];
+        Player player = level.getPlayer();
+        double playerXCoordinate = player.getCentreX(), playerYCoordinate = player.getCentreY();
+        int offset = world * OBSERVATION_SIZE;
+        observations[offset] = player.getXCoordinate();
+        observations[offset + 1] = player.getYCoordinate();
+        observations[offset + 2] = player.getHp().getValue();
+
+        ArrayList<WorldObject> candidates = nearbyCandidates.get(world);
+        Enemy[] nearest = nearestEnemies[world];
+        double[] distances = nearestDistances[world];
+        level.getObjectIndex().query(playerXCoordinate - NEARBY_RADIUS, playerYCoordinate - NEARBY_RADIUS,
+                playerXCoordinate + NEARBY_RADIUS, playerYCoordinate + NEARBY_RADIUS, candidates);
+
+        //Keeps the nearest enemies sorted by distance, candidates come in creation order so ties keep it
+        int nearestCount = 0;
+        BoundsStore store = level.getObjectBounds();
+        for (int i = 0; i < candidates.size(); i++) {
+            WorldObject object = candidates.get(i);
+            if (store.getType(object.getSlot()) != BoundsStore.ENEMY)
+                continue;
+
+            double xDistance = object.getCentreX() - playerXCoordinate, yDistance = object.getCentreY() - playerYCoordinate;
+            double distance = xDistance*xDistance + yDistance*yDistance;
+            if (distance > NEARBY_RADIUS*NEARBY_RADIUS ||
+                    (nearestCount == NEARBY_ENEMIES && distance >= distances[NEARBY_ENEMIES - 1]))
+                continue;
+
+            int position = Math.min(nearestCount, NEARBY_ENEMIES - 1);
+            while (position > 0 && distances[position - 1] > distance) {
+                nearest[position] = nearest[position - 1];
+                distances[position] = distances[position - 1];
+                position--;
+            }
+            nearest[position] = (Enemy) object;
+            distances[position] = distance;
+            nearestCount = Math.min(nearestCount + 1, NEARBY_ENEMIES);
+        }
+
+        for (int i = 0; i < NEARBY_ENEMIES; i++) {
+            int enemyOffset = offset + 3 + 3*i;
+            if (i < nearestCount) {
+                observations[enemyOffset] = nearest[i].getCentreX() - playerXCoordinate;
+                observations[enemyOffset + 1] = nearest[i].getCentreY() - playerYCoordinate;
+                observations[enemyOffset + 2] = nearest[i].getHp().getValue();
+                nearest[i] = null;
+            } else {
+                observations[enemyOffset] = 0;
+                observations[enemyOffset + 1] = 0;
+                observations[enemyOffset + 2] = 0;
+            }
+        }
+    }
+
+    //Get methods
+    /**
+     *
+     * @return
+     * The action buffer, the TickInput bits of the keys each world is given in the next step, by world.
+     */
+    public int[] getActions() {
+        return actions;
+    }
+    /**
+     *
+     * @return
+     * The observation buffer, OBSERVATION_SIZE doubles for each world in turn.
+     */
+    public double[] getObservations() {
+        return observations;
+    }
+    /**
+     *
+     * @return
+     * The reward buffer, each world's reward for the last step.
+     */
+    public double[] getRewards() {
+        return rewards;
+    }
+    /**
+     *
+     * @return
+     * The done buffer, whether each world's episode ended in the last step.
+     */
+    public boolean[] getDones() {
+        return dones;
+    }
+    /**
+     *
+     * @return
+     * The number of worlds.
+     */
+    public int getWorldCount() {
+        return worldCount;
+    }
+    /**
+     *
+     * @return
+     * The number of world updates so far, counting each world's.
+     */
+    public long getTotalSteps() {
+        return totalSteps;
+    }
+    /**
+     *
+     * @return
+     * The number of episodes that have ended so far.
+     */
+    public long getEpisodes() {
+        return episodes;
+    }
+    /**
+     *
+     * @return
+     * The time spent stepping so far in ns.
+     */
+    public long getSteppingNs() {
+        return steppingNs;
+    }
+    /**
+     *
+     * @return
+     * The world updates per second of every world together, over every step so far.
+     */
+    public double getStepsPerSecond() {
+        return (steppingNs == 0) ? 0 : totalSteps / (steppingNs / 1e9);
+    }
+}
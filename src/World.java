@@ -1,14 +1,43 @@
 import bagel.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Represents the level in which the game is currently being played.
  */
 public class World {
-    private final static int INPUT_TYPE = 0;
-    private final static int X_INPUT = 1;
-    private final static int Y_INPUT = 2;
+    /**
+     * Enemy update phase that plans every enemy's move against the previous tick.
+     */
+    public final static int PLAN_PHASE = 0;
+    /**
+     * Enemy update phase that moves every enemy.
+     */
+    public final static int APPLY_PHASE = 1;
+    /**
+     * The fastest timescale the game can be sped up to.
+     */
+    public final static int MAX_TIMESCALE = 3;
+    /**
+     * The slowest timescale the game can be slowed down to.
+     */
+    public final static int MIN_TIMESCALE = -3;
+    /**
+     * The first four bytes of every snapshot, "SDSN".
+     */
+    public final static int SNAPSHOT_MAGIC = 0x5344534E;
+    /**
+     * The version of the snapshot layout written by this game.
+     */
+    public final static short SNAPSHOT_VERSION = 1;
+
     private final static int WIN_X_COORDINATE = 950;
     private final static int WIN_Y_COORDINATE = 670;
     private final static String[] BACKGROUND_IMG = {"res/background0.png", "res/background1.png"};
@@ -16,86 +45,473 @@ public class World {
     private final static int PLAYER_HP_FONT_SIZE = 30;
     private final static int PLAYER_HP_X_COORDINATE = 20;
     private final static int PLAYER_HP_Y_COORDINATE = 25;
+    //Objects this close to the view are drawn too, as they may be drawn shifted towards their last position
+    //and their fire reaches beyond them
+    private final static double VIEW_MARGIN = 128;
+    //Constants of the hash of the state of the world, from FNV-1a
+    private final static long HASH_OFFSET = 0xcbf29ce484222325L;
+    private final static long HASH_PRIME = 0x100000001b3L;
+    //The most bytes each part of a snapshot takes, besides the bit per slot
+    private final static int SNAPSHOT_HEADER_BYTES = 4 + 2 + 8 + 4 + 3;
+    private final static int ENTITY_STATE_BYTES = 1 + 2 + 8;
+    private final static int PLAYER_STATE_BYTES = 4*8 + ENTITY_STATE_BYTES + 2 + 2*8;
+    private final static int ENEMY_STATE_BYTES = 1 + 4*8 + ENTITY_STATE_BYTES + 1;
 
     private final int levelNum;
-    private final ArrayList<WorldObject> objects = new ArrayList<>();
+    private final String levelFilepath;
+    private final long seed;
+    private final Random random;
+    //Every object but the player is in the BoundsStore and the spatial index, these lists hold them by kind
+    private final ArrayList<Obstacle> obstacles = new ArrayList<>();
+    private final ArrayList<Sinkhole> hazards = new ArrayList<>();
+    private final ArrayList<Enemy> enemies = new ArrayList<>();
+    private final ArrayList<Removable> removables = new ArrayList<>();
+    //Enemies aiming fire at the player since the last detection, in creation order
+    private final ArrayList<Enemy> firingEnemies = new ArrayList<>();
+    private final ArrayList<WorldObject> detectionCandidates = new ArrayList<>();
+    private final ArrayList<WorldObject> editCandidates = new ArrayList<>();
+    //Enemies by the packed coordinates of their entry, only built once the level is edited
+    private HashMap<Long, ArrayList<Enemy>> enemiesBySpawn;
+    private double maxDetectRadius = 0;
+    //Every enemy the world has had, defeated or not
+    private int spawnedEnemyCount = 0;
+    private final BoundsStore objectBounds = new BoundsStore();
     private final Boundary worldBounds = new Boundary();
 
     private Player player;
     private Navec navec;
-    private Image backgroundImg;
+    private Sprite backgroundImg;
+    private SpatialIndex objectIndex;
+    private StaticLayer staticLayer;
+    private Camera camera;
+    private final ArrayList<WorldObject> visibleObjects = new ArrayList<>();
+    private ForkJoinPool enemyPool = ForkJoinPool.commonPool();
+    private CombatLog combatLog = CombatLog.NONE;
+
+    //Keys read since the previous update and the keys that acted on the last update, as TickInput bits
+    private int pendingKeys = 0;
+    private int tickKeys = 0;
+    private int timescale = 0;
 
 
     /**
-     * Instantiates the world
+     * Instantiates the world with a random seed.
      * @param levelNum
      * The current level number.
-     * @param worldEntries
-     * The set of data to help create the world.
+     * @param levelFilepath
+     * The path to the file that describes the level.
+     * @throws IOException
+     * If the level file cannot be read.
+     * @throws IllegalStateException
+     * If the level is missing the player or a corner point of the world.
      */
-    public World(int levelNum, String[] worldEntries) {
+    public World(int levelNum, String levelFilepath) throws IOException {
+        this(levelNum, levelFilepath, new Random().nextLong());
+    }
+
+    /**
+     * Instantiates the world.
+     * Every random choice the world makes comes from the seed, so two worlds built from the same file and seed
+     * stay the same as long as they are given the same keys.
+     * No texture is loaded until the world is drawn, so a world can be simulated without a window
+     * and built on another thread than the one that draws it.
+     * @param levelNum
+     * The current level number.
+     * @param levelFilepath
+     * The path to the file that describes the level, read with BinaryLevelReader if it is a compiled level
+     * and with LevelReader otherwise.
+     * @param seed
+     * The seed of the world's random choices.
+     * @throws IOException
+     * If the level file cannot be read.
+     * @throws IllegalStateException
+     * If the level is missing the player or a corner point of the world.
+     */
+    public World(int levelNum, String levelFilepath, long seed) throws IOException {
         this.levelNum = levelNum;
+        this.levelFilepath = levelFilepath;
+        this.seed = seed;
+        this.random = new Random(seed);
         setBackgroundImg();
-        for (String worldEntry : worldEntries) {
-            if (worldEntry == null)
-                break;
-
-            String[] entry = worldEntry.split(",");
-            resolveEntry(entry);
-        }
+        GridLayout indexLayout = null;
+        if (BinaryLevelReader.isCompiled(levelFilepath))
+            indexLayout = BinaryLevelReader.read(levelFilepath, this::resolveEntry);
+        else
+            LevelReader.read(levelFilepath, this::resolveEntry);
 
         checkError();
+        buildObjectIndex(indexLayout);
+        staticLayer = new StaticLayer(backgroundImg, objectIndex, objectBounds, cameraArea());
+        camera = new Camera(cameraArea());
     }
 
     /**
-     * Update the world.
+     * Update the world. Nothing is drawn, see drawWorld.
+     * Enemies are updated in phases: every enemy first plans its move against where the objects
+     * were at the end of the previous tick, then every enemy moves,
+     * then the enemies that detect the player aim their fire,
+     * and finally the fire damages the player one enemy at a time in the order the enemies were created.
+     * The first two phases are split across threads when there are enough enemies,
+     * and the result does not depend on the number of threads.
+     * The timescale changes first and the player is moved last, as controlled since the previous update.
+     * @param timePassedMs
+     * The amount of time that passed for each update of the game in ms.
+     */
+    public void updateWorld(double timePassedMs) {
+        combatLog.advanceTick();
+        tickKeys = pendingKeys;
+        pendingKeys &= TickInput.HELD_KEYS;
+        applyTimescaleControl();
+
+        objectBounds.savePositions();
+        long phaseStartNs = FrameProfiler.start();
+        player.updatePlayer(timePassedMs, objectIndex);
+        FrameProfiler.stop(FrameProfiler.UPDATE_PLAYER, phaseStartNs);
+
+        sweepRemovedObjects();
+
+        phaseStartNs = FrameProfiler.start();
+        runEnemyPhase(PLAN_PHASE, timePassedMs, timescale);
+        runEnemyPhase(APPLY_PHASE, timePassedMs, timescale);
+        for (int i = 0; i < enemies.size(); i++)
+            objectIndex.update(enemies.get(i));
+        detectPlayer();
+        for (int i = 0; i < firingEnemies.size(); i++)
+            firingEnemies.get(i).commitUpdate(player);
+        FrameProfiler.stop(FrameProfiler.UPDATE_ENEMIES, phaseStartNs);
+
+        applyPlayerControl();
+    }
+
+    /**
+     * Runs a phase of the enemy update for a range of enemies.
+     * @param phase
+     * The phase being run, PLAN_PHASE or APPLY_PHASE.
      * @param timePassedMs
      * The amount of time that passed for each update of the game in ms.
      * @param timescale
      * The game's timescale. Affects the enemies' speed.
+     * @param start
+     * Index of the first enemy updated.
+     * @param end
+     * Index after the last enemy updated.
+     */
+    public void runEnemyPhase(int phase, double timePassedMs, int timescale, int start, int end) {
+        for (int i = start; i < end; i++) {
+            Enemy enemy = enemies.get(i);
+            if (phase == PLAN_PHASE)
+                enemy.planUpdate(timePassedMs, objectIndex, worldBounds, timescale);
+            else
+                enemy.applyUpdate();
+        }
+    }
+
+    /**
+     * Finds the enemies that detect the player with a single index query around the player,
+     * as large as the largest detection radius, and has them aim their fire.
+     * Every other enemy stops its fire, so the cost depends on the enemies near the player.
      */
-    public void updateWorld(double timePassedMs, int timescale) {
-        drawWorld();
-        player.updatePlayer(timePassedMs, objects);
-
-        Iterator<WorldObject> objectIterator = objects.iterator();
-        while (objectIterator.hasNext()) {
-            WorldObject object = objectIterator.next();
-            if (object instanceof Enemy) {
-                Enemy enemy = (Enemy) object;
-                if (enemy.isDead()) {
-                    objectIterator.remove();
-                } else {
-                    int direction = enemy.getMovement();
-                    if (direction != Enemy.STATIONARY)
-                        enemy.moveAndCheckCollision(direction, objects, worldBounds, timescale);
-                    enemy.updateEnemy(timePassedMs, player);
-                }
-            } else if (object instanceof Removable) {
-                if (((Removable) object).isRemoved()) {
-                    objectIterator.remove();
-                }
+    public void detectPlayer() {
+        for (int i = 0; i < firingEnemies.size(); i++)
+            firingEnemies.get(i).ceaseFire();
+        firingEnemies.clear();
+
+        double playerXCoordinate = player.getCentreX();
+        double playerYCoordinate = player.getCentreY();
+        objectIndex.query(playerXCoordinate - maxDetectRadius, playerYCoordinate - maxDetectRadius,
+                playerXCoordinate + maxDetectRadius, playerYCoordinate + maxDetectRadius, detectionCandidates);
 
+        for (int i = 0; i < detectionCandidates.size(); i++) {
+            WorldObject object = detectionCandidates.get(i);
+            if (objectBounds.getType(object.getSlot()) != BoundsStore.ENEMY)
+                continue;
+
+            Enemy enemy = (Enemy) object;
+            if (enemy.detects(playerXCoordinate, playerYCoordinate)) {
+                enemy.aimFire(player);
+                firingEnemies.add(enemy);
             }
         }
     }
 
     /**
-     * Controls the player character.
+     * Sets the pool the enemy update is split across.
+     * @param enemyPool
+     * The pool used, or null to always update the enemies on the calling thread.
+     */
+    public void setEnemyPool(ForkJoinPool enemyPool) {
+        this.enemyPool = enemyPool;
+    }
+
+    /**
+     * Sets the log the world's fights and timescale changes are recorded in, CombatLog.NONE until then.
+     * The log moves on a tick with every update of this world, so it is not given to another world
+     * updated at the same time.
+     * @param combatLog
+     * The log recorded in.
+     */
+    public void setCombatLog(CombatLog combatLog) {
+        this.combatLog = combatLog;
+        player.setCombatLog(combatLog);
+        for (Enemy enemy : enemies)
+            enemy.setCombatLog(combatLog);
+    }
+
+    /**
+     * Controls the player character and the timescale.
+     * The controls are held until the next update, which is when the world acts on them,
+     * so the player moves once per update however often the controls are read.
      * @param input
      * The input used to control the player character.
      */
     public void controlPlayer(Input input) {
-        if (input.wasPressed(Keys.A))
-            player.startAttack();
-        if (input.isDown(Keys.UP))
-            movePlayer(ShadowDimension.UP);
-        if (input.isDown(Keys.DOWN))
-            movePlayer(ShadowDimension.DOWN);
-        if (input.isDown(Keys.LEFT))
-            movePlayer(ShadowDimension.LEFT);
-        if (input.isDown(Keys.RIGHT))
-            movePlayer(ShadowDimension.RIGHT);
+        controlPlayer(TickInput.read(input));
+    }
+
+    /**
+     * Controls the player character and the timescale with keys that are already read, such as recorded keys.
+     * Held keys replace the ones given before, while pressed keys add up until the next update.
+     * @param keys
+     * The TickInput bits of the keys held or pressed.
+     */
+    public void controlPlayer(int keys) {
+        pendingKeys = (pendingKeys & TickInput.PRESSED_KEYS) | keys;
+    }
+
+    /**
+     * Hashes everything that changes as the world is updated: the type and boundary of every object,
+     * the health of the player and every enemy, and the timescale.
+     * Two worlds that were given the same keys from the same file and seed have the same hash after every update.
+     * @return
+     * The hash of the current state of the world.
+     */
+    public long stateHash() {
+        long hash = objectBounds.hash(HASH_OFFSET);
+        hash = mixHash(hash, player.getHp().getValue());
+        for (Enemy enemy : enemies)
+            hash = mixHash(hash, enemy.getHp().getValue());
+        return mixHash(hash, timescale);
+    }
+
+    /**
+     * Adds a value to a hash of 64 bits. Like FNV-1a but a whole value at a time,
+     * with the high bits folded back down so every bit of the value reaches the low bits of the hash.
+     * @param hash
+     * The hash so far.
+     * @param value
+     * The value added.
+     * @return
+     * The hash with the value added.
+     */
+    static long mixHash(long hash, long value) {
+        hash = (hash ^ value) * HASH_PRIME;
+        return hash ^ (hash >>> 32);
+    }
+
+    /**
+     * Sets the game's timescale, which affects the enemies' speed.
+     * @param timescale
+     * The timescale, from MIN_TIMESCALE to MAX_TIMESCALE.
+     */
+    public void setTimescale(int timescale) {
+        this.timescale = Math.max(MIN_TIMESCALE, Math.min(timescale, MAX_TIMESCALE));
+    }
+
+    /**
+     * Applies an edit of the level file to the world between two updates, such as one found by a LevelWatcher.
+     * Only the walls, trees, sinkholes and enemies whose entries changed are touched, each found through the
+     * spatial index or by where its entry placed it, so the cost depends on the size of the edit
+     * rather than the size of the level.
+     * An entry that moved keeps its object, so a moved enemy keeps its health and its distance from its entry.
+     * The player keeps its state whatever happens to its entry, and new corner points change the world's boundary.
+     * Entries whose object is already gone, such as a sinkhole the player fell into or a defeated enemy,
+     * are only brought back if they moved.
+     * @param edit
+     * The changes to the level file.
+     */
+    public void applyLevelEdit(LevelDiff edit) {
+        Set<WorldObject> removedObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+        boolean cornersChanged = false;
+        for (int typeNum = 0; typeNum < LevelReader.ENTRY_TYPES.length; typeNum++) {
+            String type = LevelReader.ENTRY_TYPES[typeNum];
+            long[] removedEntries = edit.getRemoved(typeNum), addedEntries = edit.getAdded(typeNum);
+            switch(type) {
+                case(Player.PLAYER_NAME):
+                    break;
+                case("TopLeft"):
+                case("BottomRight"):
+                    for (long entry : addedEntries) {
+                        resolveEntry(type, LevelSnapshot.unpackX(entry), LevelSnapshot.unpackY(entry));
+                        cornersChanged = true;
+                    }
+                    break;
+                default:
+                    applyEntryEdit(type, removedEntries, addedEntries, removedObjects);
+                    break;
+            }
+        }
+
+        //Only the lists holding a kind of object that was removed are compacted, once for the whole edit
+        boolean[] removedTypes = new boolean[BoundsStore.FIRE + 1];
+        for (WorldObject object : removedObjects)
+            removedTypes[typeOf(object)] = true;
+        if (removedTypes[BoundsStore.OBSTACLE])
+            obstacles.removeIf(removedObjects::contains);
+        if (removedTypes[BoundsStore.SINKHOLE]) {
+            hazards.removeIf(removedObjects::contains);
+            removables.removeIf(removedObjects::contains);
+        }
+        if (removedTypes[BoundsStore.ENEMY]) {
+            enemies.removeIf(removedObjects::contains);
+            firingEnemies.removeIf(removedObjects::contains);
+        }
+        if (cornersChanged) {
+            camera = new Camera(cameraArea());
+            staticLayer.invalidate();
+            staticLayer = new StaticLayer(backgroundImg, objectIndex, objectBounds, cameraArea());
+        }
+    }
+
+    /**
+     * Gives the most bytes a snapshot of the world as it is now can take.
+     * @return
+     * The number of bytes a buffer needs to have room for to take a snapshot.
+     */
+    public int getSnapshotCapacity() {
+        return SNAPSHOT_HEADER_BYTES + (objectBounds.size() + 7) / 8 + PLAYER_STATE_BYTES +
+                spawnedEnemyCount * ENEMY_STATE_BYTES;
+    }
+
+    /**
+     * Takes a snapshot of the world into a new buffer that is exactly as large as the snapshot.
+     * @return
+     * The snapshot, from position 0 to its limit.
+     */
+    public ByteBuffer snapshot() {
+        ByteBuffer buffer = ByteBuffer.allocate(getSnapshotCapacity());
+        snapshot(buffer);
+        buffer.flip();
+        return ByteBuffer.allocate(buffer.remaining()).put(buffer).flip();
+    }
+
+    /**
+     * Writes everything the world's updates change, so the world can later be put back as it is now with restore.
+     * Walls, trees and the rest of the level are the same in every world built from the level's file and seed,
+     * so only which objects are still in the world and the state of the player and the enemies are written.
+     * Edits applied with applyLevelEdit are not part of a snapshot.
+     *
+     * Layout, every number big-endian:
+     * header   int SNAPSHOT_MAGIC, short SNAPSHOT_VERSION, long seed, int number of slots in the store,
+     *          byte timescale, byte keys read since the last update, byte keys of the last update
+     * removed  a bit per slot from the lowest bit of each byte, set for objects out of the world
+     *          and sinkholes the player has fallen into
+     * player   Player.writeState
+     * enemies  Enemy.writeState for every enemy the world has had in creation order, defeated ones too,
+     *          as the boundary they were defeated at is part of the world's hash
+     * @param buffer
+     * The buffer written to, from its position, with room for getSnapshotCapacity bytes.
+     */
+    public void snapshot(ByteBuffer buffer) {
+        int slotCount = objectBounds.size();
+        buffer.putInt(SNAPSHOT_MAGIC).putShort(SNAPSHOT_VERSION);
+        buffer.putLong(seed).putInt(slotCount);
+        buffer.put((byte) timescale).put((byte) pendingKeys).put((byte) tickKeys);
+
+        for (int byteStart = 0; byteStart < slotCount; byteStart += Byte.SIZE) {
+            int bits = 0;
+            for (int bit = 0; bit < Byte.SIZE && byteStart + bit < slotCount; bit++)
+                if (isOutOfWorld(byteStart + bit))
+                    bits |= 1 << bit;
+            buffer.put((byte) bits);
+        }
+
+        player.writeState(buffer);
+        for (int slot = 0; slot < slotCount; slot++)
+            if (objectBounds.getObject(slot) instanceof Enemy)
+                ((Enemy) objectBounds.getObject(slot)).writeState(buffer);
+    }
+
+    /**
+     * Puts the world back as it was when a snapshot was taken, such as to load a saved game or rewind.
+     * The snapshot must be of a world built from the same level file and seed, taken earlier or later than now.
+     * Objects that left the world since are brought back, and objects added by edits since are removed.
+     * Objects added by edits before the snapshot was taken are not part of it, so such a snapshot
+     * can only be restored into a world that has those objects too, such as the world it was taken of.
+     * Enemies that were firing aim their fire at the player again.
+     * @param buffer
+     * The buffer the snapshot is read from, from its position.
+     * @throws IllegalArgumentException
+     * If the buffer does not hold a snapshot of this version, holds a snapshot of a world with another seed,
+     * or holds more objects than this world has. The world is left as it was.
+     */
+    public void restore(ByteBuffer buffer) {
+        if (buffer.getInt() != SNAPSHOT_MAGIC)
+            throw new IllegalArgumentException("The buffer does not hold a snapshot of a world");
+        short version = buffer.getShort();
+        if (version != SNAPSHOT_VERSION)
+            throw new IllegalArgumentException("Unsupported snapshot version " + version);
+        long snapshotSeed = buffer.getLong();
+        int slotCount = buffer.getInt();
+        if (snapshotSeed != seed)
+            throw new IllegalArgumentException("The snapshot is of a world with another seed");
+        if (slotCount > objectBounds.size())
+            throw new IllegalArgumentException("The snapshot has " + slotCount + " objects but the world has "
+                    + objectBounds.size() + ", edits added objects to the world it was taken of");
+
+        setTimescale(buffer.get());
+        pendingKeys = buffer.get() & 0xFF;
+        tickKeys = buffer.get() & 0xFF;
+
+        //Takes every object out of or back into the world as the snapshot has it
+        ArrayList<WorldObject> restoredObjects = new ArrayList<>();
+        boolean objectsChanged = false;
+        int bits = 0;
+        for (int slot = 0; slot < objectBounds.size(); slot++) {
+            if (slot < slotCount && slot % Byte.SIZE == 0)
+                bits = buffer.get();
+            boolean outOfWorld = (slot >= slotCount || (bits & (1 << (slot % Byte.SIZE))) != 0);
+            WorldObject object = objectBounds.getObject(slot);
+            byte type = objectBounds.getType(slot);
+            if (object == player)
+                continue;
+
+            if (object instanceof Sinkhole) {
+                if (outOfWorld)
+                    ((Sinkhole) object).removeObject();
+                else
+                    ((Sinkhole) object).restore();
+            }
+            if (outOfWorld && type != BoundsStore.REMOVED) {
+                removeObject(object);
+                objectsChanged = true;
+            } else if (!outOfWorld && type == BoundsStore.REMOVED) {
+                objectBounds.restore(slot, typeOf(object));
+                restoredObjects.add(object);
+                objectsChanged = true;
+            }
+        }
+        //Every object marked since the last sweep is either out of the world or back in it by now
+        objectBounds.clearTombstones();
+        if (objectsChanged)
+            rebuildObjectLists();
+
+        player.readState(buffer);
+        for (int slot = 0; slot < slotCount; slot++)
+            if (objectBounds.getObject(slot) instanceof Enemy)
+                ((Enemy) objectBounds.getObject(slot)).readState(buffer);
+        for (WorldObject object : restoredObjects)
+            objectIndex.insert(object);
+        for (Enemy enemy : enemies)
+            objectIndex.update(enemy);
+
+        firingEnemies.clear();
+        for (Enemy enemy : enemies) {
+            if (enemy.isFiring()) {
+                enemy.aimFire(player);
+                firingEnemies.add(enemy);
+            }
+        }
+        objectBounds.savePositions();
     }
 
     /**
@@ -120,35 +536,44 @@ public class World {
         return (player.getHp().getValue() <= player.getHp().getMinHp());
     }
 
-    private void setBackgroundImg() {
-        backgroundImg = new Image(BACKGROUND_IMG[levelNum]);
+    /**
+     * Lets go of the images only this level uses, once the level is no longer played.
+     * The level can still be drawn afterwards, its images are then loaded again.
+     */
+    public void release() {
+        staticLayer.invalidate();
+        AssetManager.release(backgroundImg.getFilepath());
     }
 
-    //Resolves entries one by one
-    private void resolveEntry(String[] entry) {
-        int xCoordinate = Integer.parseInt(entry[X_INPUT]);
-        int yCoordinate = Integer.parseInt(entry[Y_INPUT]);
+    private void setBackgroundImg() {
+        backgroundImg = new Sprite(BACKGROUND_IMG[levelNum]);
+        AssetManager.retain(backgroundImg.getFilepath());
+    }
 
-        switch(entry[INPUT_TYPE]) {
+    //Resolves entries one by one as the level file is read
+    private void resolveEntry(String type, int xCoordinate, int yCoordinate) {
+        switch(type) {
             case(Player.PLAYER_NAME):
-                player = new Player(xCoordinate, yCoordinate);
+                player = new Player(xCoordinate, yCoordinate, objectBounds);
+                player.setCombatLog(combatLog);
                 break;
             case("Wall"):
-                objects.add(new Obstacle(xCoordinate, yCoordinate, false));
+                obstacles.add(new Obstacle(xCoordinate, yCoordinate, false, objectBounds));
                 break;
             case("Tree"):
-                objects.add(new Obstacle(xCoordinate, yCoordinate, true));
+                obstacles.add(new Obstacle(xCoordinate, yCoordinate, true, objectBounds));
                 break;
             case("Sinkhole"):
-                objects.add(new Sinkhole(xCoordinate, yCoordinate));
+                Sinkhole sinkhole = new Sinkhole(xCoordinate, yCoordinate, objectBounds);
+                hazards.add(sinkhole);
+                removables.add(sinkhole);
                 break;
             case("Demon"):
-                Demon demon = new Demon(xCoordinate, yCoordinate);
-                objects.add(demon);
+                addEnemy(new Demon(xCoordinate, yCoordinate, objectBounds, random));
                 break;
             case("Navec"):
-                navec = new Navec(xCoordinate, yCoordinate);
-                objects.add(navec);
+                navec = new Navec(xCoordinate, yCoordinate, objectBounds, random);
+                addEnemy(navec);
                 break;
             case("TopLeft"):
                 worldBounds.setLeftBound(xCoordinate);
@@ -163,29 +588,397 @@ public class World {
         }
     }
 
+    //Moves the objects of entries that moved, then removes and adds the objects of the other entries
+    private void applyEntryEdit(String type, long[] removedEntries, long[] addedEntries,
+                                Set<WorldObject> removedObjects) {
+        int movedCount = Math.min(removedEntries.length, addedEntries.length);
+        for (int i = 0; i < removedEntries.length; i++) {
+            WorldObject object = findSpawned(type, removedEntries[i]);
+            if (i < movedCount && object != null) {
+                respawnObject(object, removedEntries[i], addedEntries[i]);
+                continue;
+            }
+
+            if (object != null) {
+                removeEditedObject(object);
+                removedObjects.add(object);
+            }
+            if (i < movedCount)
+                spawnObject(type, addedEntries[i]);
+        }
+
+        for (int i = movedCount; i < addedEntries.length; i++)
+            spawnObject(type, addedEntries[i]);
+    }
+
+    //Finds the object still in the world that an entry created, or null
+    private WorldObject findSpawned(String type, long entry) {
+        int xCoordinate = LevelSnapshot.unpackX(entry), yCoordinate = LevelSnapshot.unpackY(entry);
+        if (type.equals("Demon") || type.equals("Navec")) {
+            ArrayList<Enemy> spawned = spawnedEnemies().get(entry);
+            if (spawned != null)
+                for (Enemy enemy : spawned)
+                    if (!enemy.isDead() && enemy.getName().equals(type))
+                        return enemy;
+            return null;
+        }
+
+        //Walls, trees and sinkholes never move, so they are still where their entry placed them
+        objectIndex.query(xCoordinate, yCoordinate, xCoordinate, yCoordinate, editCandidates);
+        for (WorldObject object : editCandidates) {
+            if (object.getXCoordinate() != xCoordinate || object.getYCoordinate() != yCoordinate)
+                continue;
+            if (object instanceof Obstacle && ((Obstacle) object).isOrganic() == type.equals("Tree"))
+                return object;
+            if (object instanceof Sinkhole && type.equals("Sinkhole") && !((Sinkhole) object).isRemoved())
+                return object;
+        }
+        return null;
+    }
+
+    private void respawnObject(WorldObject object, long fromEntry, long toEntry) {
+        int xCoordinate = LevelSnapshot.unpackX(toEntry), yCoordinate = LevelSnapshot.unpackY(toEntry);
+        if (object instanceof Enemy) {
+            spawnedEnemies().get(fromEntry).remove(object);
+            spawnedEnemies().computeIfAbsent(toEntry, spawn -> new ArrayList<>()).add((Enemy) object);
+            ((Enemy) object).respawn(xCoordinate, yCoordinate);
+        } else {
+            invalidateStaticLayer(object);
+            object.translate(xCoordinate - object.getXCoordinate(), yCoordinate - object.getYCoordinate());
+            invalidateStaticLayer(object);
+        }
+        objectIndex.update(object);
+    }
+
+    private void removeEditedObject(WorldObject object) {
+        invalidateStaticLayer(object);
+        removeObject(object);
+        if (object instanceof Enemy) {
+            forgetSpawn((Enemy) object);
+            if (object == navec)
+                navec = null;
+        }
+    }
+
+    //The entry's object always takes the last slot of the store
+    private void spawnObject(String type, long entry) {
+        resolveEntry(type, LevelSnapshot.unpackX(entry), LevelSnapshot.unpackY(entry));
+        WorldObject object = objectBounds.getObject(objectBounds.size() - 1);
+        objectIndex.insert(object);
+        invalidateStaticLayer(object);
+        //A table built later finds the enemy among the others
+        if (object instanceof Enemy && enemiesBySpawn != null)
+            enemiesBySpawn.computeIfAbsent(entry, spawn -> new ArrayList<>()).add((Enemy) object);
+    }
+
+    //The store forgets the type of a removed object, so removed objects are told apart by class
+    private static byte typeOf(WorldObject object) {
+        if (object instanceof Obstacle)
+            return BoundsStore.OBSTACLE;
+        if (object instanceof Sinkhole)
+            return BoundsStore.SINKHOLE;
+        return BoundsStore.ENEMY;
+    }
+
+    private void invalidateStaticLayer(WorldObject object) {
+        if (object instanceof Obstacle)
+            staticLayer.invalidate(object.getLeftBound(), object.getTopBound(),
+                    object.getRightBound(), object.getBotBound());
+    }
+
+    private void forgetSpawn(Enemy enemy) {
+        if (enemiesBySpawn == null)
+            return;
+        ArrayList<Enemy> spawned = enemiesBySpawn.get(LevelSnapshot.pack(enemy.getSpawnXCoordinate(),
+                enemy.getSpawnYCoordinate()));
+        if (spawned != null)
+            spawned.remove(enemy);
+    }
+
+    //Built on the first edit of the level, from every enemy still in the world
+    private HashMap<Long, ArrayList<Enemy>> spawnedEnemies() {
+        if (enemiesBySpawn == null) {
+            enemiesBySpawn = new HashMap<>();
+            for (Enemy enemy : enemies)
+                enemiesBySpawn.computeIfAbsent(LevelSnapshot.pack(enemy.getSpawnXCoordinate(),
+                        enemy.getSpawnYCoordinate()), spawn -> new ArrayList<>()).add(enemy);
+        }
+        return enemiesBySpawn;
+    }
+
+    private void addEnemy(Enemy enemy) {
+        enemy.setCombatLog(combatLog);
+        enemies.add(enemy);
+        spawnedEnemyCount++;
+        maxDetectRadius = Math.max(maxDetectRadius, enemy.getDetectRadius());
+    }
+
     //Checks if input .csv file is missing a crucial entry
     private void checkError() {
-        if (player == null) {
-            System.out.println("MISSING PLAYER! EXITING!");
-            Window.close();
-        } else if (!worldBounds.isDefined()) {
-            System.out.println("MISSING A CORNER POINT! EXITING!");
-            Window.close();
+        if (player == null)
+            throw new IllegalStateException("MISSING PLAYER!");
+        else if (!worldBounds.isDefined())
+            throw new IllegalStateException("MISSING A CORNER POINT!");
+    }
+
+    //Indexes the objects over an area covering the world and every object in it, unless the level gives the area
+    private void buildObjectIndex(GridLayout layout) {
+        if (layout != null)
+            objectIndex = new UniformGridIndex(layout, objectBounds);
+        else
+            objectIndex = new UniformGridIndex(indexArea(), objectBounds);
+
+        for (int slot = 0; slot < objectBounds.size(); slot++)
+            if (objectBounds.getType(slot) != BoundsStore.PLAYER)
+                objectIndex.insert(objectBounds.getObject(slot));
+    }
+
+    //The camera shows the world and the whole background
+    private Boundary cameraArea() {
+        return new Boundary(Math.min(worldBounds.getTopBound(), 0),
+                Math.max(worldBounds.getBotBound(), backgroundImg.getHeight()),
+                Math.min(worldBounds.getLeftBound(), 0),
+                Math.max(worldBounds.getRightBound(), backgroundImg.getWidth()));
+    }
+
+    private Boundary indexArea() {
+        Boundary area = new Boundary(worldBounds.getTopBound(), worldBounds.getBotBound(),
+                worldBounds.getLeftBound(), worldBounds.getRightBound());
+        for (int slot = 0; slot < objectBounds.size(); slot++) {
+            area.setTopBound(Math.min(area.getTopBound(), objectBounds.getTopBound(slot)));
+            area.setBotBound(Math.max(area.getBotBound(), objectBounds.getBotBound(slot)));
+            area.setLeftBound(Math.min(area.getLeftBound(), objectBounds.getLeftBound(slot)));
+            area.setRightBound(Math.max(area.getRightBound(), objectBounds.getRightBound(slot)));
         }
+
+        return area;
     }
 
-    //Draw the background, the objects in the world and player health
-    private void drawWorld() {
-        backgroundImg.draw(Window.getWidth()/2.0, Window.getHeight()/2.0);
+    /**
+     * Draw the background, the objects in the world, player health and the enemies' fire
+     * where they are after the last update.
+     */
+    public void drawWorld() {
+        drawWorld(1);
+    }
 
-        for (WorldObject object : objects)
-            object.drawObject();
+    /**
+     * Starts composing the walls and trees around the player on a background thread,
+     * so the first frames of the level do not wait for them. Called by the thread that builds the world.
+     * @param viewWidth
+     * The width of the view the world will be drawn in.
+     * @param viewHeight
+     * The height of the view the world will be drawn in.
+     */
+    public void prepareDrawing(double viewWidth, double viewHeight) {
+        camera.follow(player.getXCoordinate() + player.getImg().getWidth()/2,
+                player.getYCoordinate() + player.getImg().getHeight()/2, viewWidth, viewHeight);
+        staticLayer.prefetch(camera.getLeft(), camera.getTop(), camera.getRight(), camera.getBot());
+    }
+
+    /**
+     * Draw the background, the objects in the world, player health and the enemies' fire.
+     * The view follows the player, and only the objects the index finds around the view are drawn,
+     * so drawing costs the same however large the world is.
+     * The background, walls and trees come from the static layer, which composes them once.
+     * Moving objects are drawn between where they were before the last update and where they are now,
+     * so they move smoothly when the game is drawn more often than it is updated.
+     * @param alpha
+     * How far between the two positions the objects are drawn, from 0 to 1.
+     */
+    public void drawWorld(double alpha) {
+        camera.follow(player.getDrawXCoordinate(alpha) + player.getImg().getWidth()/2,
+                player.getDrawYCoordinate(alpha) + player.getImg().getHeight()/2,
+                Window.getWidth(), Window.getHeight());
+        staticLayer.draw(camera.getLeft(), camera.getTop(), camera.getRight(), camera.getBot());
+
+        objectIndex.query(camera.getLeft() - VIEW_MARGIN, camera.getTop() - VIEW_MARGIN,
+                camera.getRight() + VIEW_MARGIN, camera.getBot() + VIEW_MARGIN, visibleObjects);
+        for (WorldObject object : visibleObjects)
+            if (!(object instanceof Obstacle))
+                object.drawObject(alpha, camera);
 
         player.getHp().drawHp(PLAYER_HP_FONT_SIZE, PLAYER_HP_X_COORDINATE, PLAYER_HP_Y_COORDINATE);
-        player.getImg().drawFromTopLeft(player.getXCoordinate(), player.getYCoordinate());
+        player.getImg().drawFromTopLeft(player.getDrawXCoordinate(alpha) - camera.getLeft(),
+                player.getDrawYCoordinate(alpha) - camera.getTop());
+
+        for (WorldObject object : visibleObjects)
+            if (object instanceof Enemy)
+                ((Enemy) object).drawFire(alpha, camera);
     }
 
-    private void movePlayer(int direction) {
-        player.moveAndCheckCollision(direction, objects, worldBounds, 0);
+    private void runEnemyPhase(int phase, double timePassedMs, int timescale) {
+        if (enemyPool != null && EnemyUpdateTask.worthSplitting(enemies.size()))
+            enemyPool.invoke(new EnemyUpdateTask(this, phase, timePassedMs, timescale, 0, enemies.size()));
+        else
+            runEnemyPhase(phase, timePassedMs, timescale, 0, enemies.size());
+    }
+
+    //Changes the timescale as pressed since the previous update, logging attempts past the limits too
+    private void applyTimescaleControl() {
+        if ((tickKeys & TickInput.SPEED_UP) != 0) {
+            if (timescale < MAX_TIMESCALE)
+                timescale++;
+            combatLog.timescale(1, timescale);
+        }
+        if ((tickKeys & TickInput.SLOW_DOWN) != 0) {
+            if (timescale > MIN_TIMESCALE)
+                timescale--;
+            combatLog.timescale(-1, timescale);
+        }
+    }
+
+    //Acts on the controls held since the previous update, in the order they were always checked in
+    private void applyPlayerControl() {
+        if ((tickKeys & TickInput.ATTACK) != 0)
+            player.startAttack();
+        player.moveInDirections(tickKeys & TickInput.HELD_KEYS, objectIndex, worldBounds, 0);
+    }
+
+    //Takes every object marked for removal since the last sweep out of the index and the store,
+    //then compacts each list that lost an object in a single pass, keeping the order of the rest.
+    //Ticks where nothing was removed cost nothing
+    private void sweepRemovedObjects() {
+        int tombstoneCount = objectBounds.getTombstoneCount();
+        if (tombstoneCount == 0)
+            return;
+
+        boolean enemiesRemoved = false, sinkholesRemoved = false;
+        for (int i = 0; i < tombstoneCount; i++) {
+            int slot = objectBounds.getTombstone(i);
+            byte type = objectBounds.getType(slot);
+            //The player stays in the world to show that they lost
+            if (type != BoundsStore.ENEMY && type != BoundsStore.SINKHOLE)
+                continue;
+
+            WorldObject object = objectBounds.getObject(slot);
+            if (type == BoundsStore.ENEMY) {
+                enemiesRemoved = true;
+                forgetSpawn((Enemy) object);
+            } else {
+                sinkholesRemoved = true;
+            }
+            removeObject(object);
+        }
+        objectBounds.clearTombstones();
+
+        if (enemiesRemoved)
+            enemies.removeIf(Enemy::isDead);
+        if (sinkholesRemoved) {
+            removables.removeIf(Removable::isRemoved);
+            hazards.removeIf(Sinkhole::isRemoved);
+        }
+    }
+
+    //Out of the world, or a sinkhole the player fell into that is taken out at the next sweep
+    private boolean isOutOfWorld(int slot) {
+        byte type = objectBounds.getType(slot);
+        return (type == BoundsStore.REMOVED ||
+                (type == BoundsStore.SINKHOLE && ((Sinkhole) objectBounds.getObject(slot)).isRemoved()));
+    }
+
+    //Fills the lists of objects by kind again from the store, in creation order
+    private void rebuildObjectLists() {
+        obstacles.clear();
+        hazards.clear();
+        enemies.clear();
+        removables.clear();
+        enemiesBySpawn = null;
+        for (int slot = 0; slot < objectBounds.size(); slot++) {
+            WorldObject object = objectBounds.getObject(slot);
+            switch(objectBounds.getType(slot)) {
+                case(BoundsStore.OBSTACLE):
+                    obstacles.add((Obstacle) object);
+                    break;
+                case(BoundsStore.SINKHOLE):
+                    hazards.add((Sinkhole) object);
+                    removables.add((Sinkhole) object);
+                    break;
+                case(BoundsStore.ENEMY):
+                    enemies.add((Enemy) object);
+                    if (object instanceof Navec)
+                        navec = (Navec) object;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    //Takes an object out of the index and the store
+    private void removeObject(WorldObject object) {
+        objectIndex.remove(object);
+        objectBounds.remove(object.getSlot());
+    }
+
+    //Get methods
+    /**
+     *
+     * @return
+     * The game's timescale.
+     */
+    public int getTimescale() {
+        return timescale;
+    }
+    /**
+     *
+     * @return
+     * The current level number.
+     */
+    public int getLevelNum() {
+        return levelNum;
+    }
+    /**
+     *
+     * @return
+     * The path to the file the level was built from.
+     */
+    public String getLevelFilepath() {
+        return levelFilepath;
+    }
+    /**
+     *
+     * @return
+     * The seed of the world's random choices.
+     */
+    public long getSeed() {
+        return seed;
+    }
+    /**
+     *
+     * @return
+     * The TickInput bits of the keys that acted on the last update.
+     */
+    public int getTickKeys() {
+        return tickKeys;
+    }
+
+    //Package-private for the benchmarks and tools that drive a world directly
+    Player getPlayer() {
+        return player;
+    }
+    ArrayList<Obstacle> getObstacles() {
+        return obstacles;
+    }
+    ArrayList<Sinkhole> getHazards() {
+        return hazards;
+    }
+    ArrayList<Enemy> getEnemies() {
+        return enemies;
+    }
+    ArrayList<Removable> getRemovables() {
+        return removables;
+    }
+    int getObjectCount() {
+        return objectIndex.size();
+    }
+    SpatialIndex getObjectIndex() {
+        return objectIndex;
+    }
+    Boundary getWorldBounds() {
+        return worldBounds;
+    }
+    BoundsStore getObjectBounds() {
+        return objectBounds;
     }
 }
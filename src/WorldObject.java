@@ -1,56 +1,70 @@
-import bagel.Image;
-
 /**
  * Represents any physical object in this game.
+ * The object's boundary is kept in the BoundsStore of its world,
+ * the object itself only remembers which slot of the store is its own.
+ * Its coordinates are the top left corner of the boundary.
  */
 public abstract class WorldObject {
-    private final Boundary bounds;
-    private double xCoordinate, yCoordinate;
+    private final BoundsStore store;
+    private final int slot;
 
     //Img must be a parameter in order to define the boundary
-    protected WorldObject(double xCoordinate, double yCoordinate, Image img) {
-        this.xCoordinate = xCoordinate;
-        this.yCoordinate = yCoordinate;
-
-        bounds = new Boundary(
-                yCoordinate,                            //top bound
-                yCoordinate + img.getHeight(),          //bot bound
+    protected WorldObject(double xCoordinate, double yCoordinate, Sprite img, BoundsStore store, byte type) {
+        this.store = store;
+        slot = store.add(this, type,
                 xCoordinate,                            //left bound
-                xCoordinate + img.getWidth()            //right bound
+                yCoordinate,                            //top bound
+                xCoordinate + img.getWidth(),           //right bound
+                yCoordinate + img.getHeight()           //bot bound
         );
     }
 
     /**
      * Draws the object model on the screen.
+     * @param alpha
+     * How far the object is drawn between where it was before the last update and where it is now, from 0 to 1.
+     * @param camera
+     * The camera the world is viewed through.
      */
-    public void drawObject() {
-        getImg().drawFromTopLeft(xCoordinate, yCoordinate);
+    public void drawObject(double alpha, Camera camera) {
+        getImg().drawFromTopLeft(getDrawXCoordinate(alpha) - camera.getLeft(), getDrawYCoordinate(alpha) - camera.getTop());
     }
 
     protected boolean checkOverlap(WorldObject object) {
-        return (getBounds().getTopBound() <= object.getBounds().getBotBound() &&
-                getBounds().getBotBound() >= object.getBounds().getTopBound() &&
-                getBounds().getLeftBound() <= object.getBounds().getRightBound() &&
-                getBounds().getRightBound() >= object.getBounds().getLeftBound());
+        return (getTopBound() <= object.getBotBound() &&
+                getBotBound() >= object.getTopBound() &&
+                getLeftBound() <= object.getRightBound() &&
+                getRightBound() >= object.getLeftBound());
     }
 
     //Set methods
-    protected void setXCoordinate(double xCoordinate) {
-        this.xCoordinate = xCoordinate;
+    protected void translate(double xDistance, double yDistance) {
+        store.translate(slot, xDistance, yDistance);
     }
-    protected void setYCoordinate(double yCoordinate) {
-        this.yCoordinate = yCoordinate;
+    protected void setBounds(double leftBound, double topBound, double rightBound, double botBound) {
+        store.setBounds(slot, leftBound, topBound, rightBound, botBound);
+    }
+    protected void setRightBound(double rightBound) {
+        store.setRightBound(slot, rightBound);
     }
 
     //Get methods
-    protected abstract Image getImg();
+    protected abstract Sprite getImg();
     /**
      *
      * @return
-     * The boundary of the object
+     * The store holding the object's boundary.
      */
-    public Boundary getBounds() {
-        return bounds;
+    public BoundsStore getStore() {
+        return store;
+    }
+    /**
+     *
+     * @return
+     * The object's slot in its store. Objects created earlier have lower slots.
+     */
+    public int getSlot() {
+        return slot;
     }
     /**
      *
@@ -58,7 +72,7 @@ public abstract class WorldObject {
      * The x coordinate of the object.
      */
     public double getXCoordinate() {
-        return xCoordinate;
+        return store.getLeftBound(slot);
     }
     /**
      *
@@ -66,6 +80,74 @@ public abstract class WorldObject {
      * The y coordinate of the object.
      */
     public double getYCoordinate() {
-        return yCoordinate;
+        return store.getTopBound(slot);
+    }
+    /**
+     *
+     * @param alpha
+     * How far between where the object was before the last update and where it is now, from 0 to 1.
+     * @return
+     * The x coordinate the object is drawn at.
+     */
+    public double getDrawXCoordinate(double alpha) {
+        return store.getInterpolatedLeftBound(slot, alpha);
+    }
+    /**
+     *
+     * @param alpha
+     * How far between where the object was before the last update and where it is now, from 0 to 1.
+     * @return
+     * The y coordinate the object is drawn at.
+     */
+    public double getDrawYCoordinate(double alpha) {
+        return store.getInterpolatedTopBound(slot, alpha);
+    }
+    /**
+     *
+     * @return
+     * Top edge of the object's boundary.
+     */
+    public double getTopBound() {
+        return store.getTopBound(slot);
+    }
+    /**
+     *
+     * @return
+     * Bottom edge of the object's boundary.
+     */
+    public double getBotBound() {
+        return store.getBotBound(slot);
+    }
+    /**
+     *
+     * @return
+     * Left edge of the object's boundary.
+     */
+    public double getLeftBound() {
+        return store.getLeftBound(slot);
+    }
+    /**
+     *
+     * @return
+     * Right edge of the object's boundary.
+     */
+    public double getRightBound() {
+        return store.getRightBound(slot);
+    }
+    /**
+     *
+     * @return
+     * X coordinate of the centre of the object's boundary.
+     */
+    public double getCentreX() {
+        return (getLeftBound() + getRightBound()) / 2;
+    }
+    /**
+     *
+     * @return
+     * Y coordinate of the centre of the object's boundary.
+     */
+    public double getCentreY() {
+        return (getTopBound() + getBotBound()) / 2;
     }
 }
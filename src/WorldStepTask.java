@@ -0,0 +1,45 @@
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Steps a range of the worlds of a VectorEnvironment,
+ * splitting the range in half until it is small enough to run on one thread.
+ */
+public class WorldStepTask extends RecursiveAction {
+    private final static long serialVersionUID = 1L;
+
+    private final VectorEnvironment environment;
+    private final int sequentialThreshold;
+    private final int start;
+    private final int end;
+
+
+    /**
+     * Instantiates the task.
+     * @param environment
+     * The environment whose worlds are stepped.
+     * @param sequentialThreshold
+     * The number of worlds at or below which a range is stepped on one thread.
+     * @param start
+     * Index of the first world stepped.
+     * @param end
+     * Index after the last world stepped.
+     */
+    public WorldStepTask(VectorEnvironment environment, int sequentialThreshold, int start, int end) {
+        this.environment = environment;
+        this.sequentialThreshold = sequentialThreshold;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+        if (end - start <= sequentialThreshold) {
+            environment.stepWorlds(start, end);
+            return;
+        }
+
+        int middle = (start + end) >>> 1;
+        invokeAll(new WorldStepTask(environment, sequentialThreshold, start, middle),
+                new WorldStepTask(environment, sequentialThreshold, middle, end));
+    }
+}
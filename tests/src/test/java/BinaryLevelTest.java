@@ -0,0 +1,85 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks a compiled level builds the same world as the .csv file it was compiled from.
+ */
+class BinaryLevelTest {
+    private final static int TILES_PER_ROW = 8;
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void compiledLevelRoundTrips() throws IOException {
+        String csv = TestLevels.tile(directory, TILES_PER_ROW);
+        String compiled = BinaryLevelReader.compiledPath(csv);
+        LevelCompiler.compile(csv, compiled, true);
+        assertTrue(BinaryLevelReader.isCompiled(compiled));
+        assertEquals(compiled, BinaryLevelReader.preferCompiled(csv));
+
+        World fromCsv = new World(0, csv), fromCompiled = new World(0, compiled);
+        assertEquals(TestLevels.describeObjects(fromCsv), TestLevels.describeObjects(fromCompiled));
+        assertEquals(fromCsv.getPlayer().getLeftBound(), fromCompiled.getPlayer().getLeftBound());
+        assertEquals(fromCsv.getPlayer().getTopBound(), fromCompiled.getPlayer().getTopBound());
+        assertEquals(describe(fromCsv.getWorldBounds()), describe(fromCompiled.getWorldBounds()));
+
+        GridLayout csvLayout = ((UniformGridIndex) fromCsv.getObjectIndex()).getLayout();
+        GridLayout storedLayout = BinaryLevelReader.read(compiled, (type, x, y) -> {});
+        assertEquals(describe(csvLayout), describe(storedLayout));
+    }
+
+    @Test
+    void compiledLevelWithoutLayout() throws IOException {
+        String compiled = directory.resolve("level1" + BinaryLevelReader.EXTENSION).toString();
+        LevelCompiler.compile(TestLevels.SHIPPED_LEVEL, compiled, false);
+        assertNull(BinaryLevelReader.read(compiled, (type, x, y) -> {}));
+        assertEquals(TestLevels.describeObjects(new World(0, TestLevels.SHIPPED_LEVEL)),
+                TestLevels.describeObjects(new World(0, compiled)));
+    }
+
+    @Test
+    void truncatedLevelIsRejected() throws IOException {
+        String compiled = directory.resolve("level1" + BinaryLevelReader.EXTENSION).toString();
+        LevelCompiler.compile(TestLevels.SHIPPED_LEVEL, compiled, true);
+        byte[] level = Files.readAllBytes(Path.of(compiled));
+        Files.write(Path.of(compiled), Arrays.copyOf(level, level.length - BinaryLevelReader.RECORD_BYTES));
+        assertThrows(IOException.class, () -> BinaryLevelReader.read(compiled, (type, x, y) -> {}));
+
+        Files.write(Path.of(compiled), new byte[BinaryLevelReader.HEADER_BYTES]);
+        assertThrows(IOException.class, () -> BinaryLevelReader.read(compiled, (type, x, y) -> {}));
+    }
+
+    @Test
+    void incompleteLevelIsRejected() throws IOException {
+        String compiled = directory.resolve("edited" + BinaryLevelReader.EXTENSION).toString();
+        String noPlayer = TestLevels.edit(TestLevels.SHIPPED_LEVEL, directory.resolve("noPlayer.csv"),
+                "Fae,5,696", null);
+        assertThrows(IllegalStateException.class, () -> LevelCompiler.compile(noPlayer, compiled, true));
+
+        String noCorner = TestLevels.edit(TestLevels.SHIPPED_LEVEL, directory.resolve("noCorner.csv"),
+                "BottomRight,984,709", null);
+        assertThrows(IllegalStateException.class, () -> LevelCompiler.compile(noCorner, compiled, false));
+    }
+
+    private static String describe(Boundary bounds) {
+        return Arrays.toString(new double[] {bounds.getLeftBound(), bounds.getTopBound(),
+                bounds.getRightBound(), bounds.getBotBound()});
+    }
+
+    private static String describe(GridLayout layout) {
+        return Arrays.toString(new double[] {layout.getOriginX(), layout.getOriginY(), layout.getCellSize(),
+                layout.getColumns(), layout.getRows()});
+    }
+}
@@ -0,0 +1,51 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks each world records its fights into its own log, counting its own ticks.
+ */
+class CombatLogTest {
+    private final static int TICKS = 600;
+    private final static long SEED = 6;
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void worldsUpdatedTogetherKeepSeparateLogs() throws IOException {
+        World first = new World(0, TestLevels.SHIPPED_LEVEL, SEED);
+        World second = new World(0, TestLevels.SHIPPED_LEVEL, SEED);
+        CombatLog firstLog = new CombatLog(directory.resolve("first.log"));
+        CombatLog secondLog = new CombatLog(directory.resolve("second.log"));
+        first.setCombatLog(firstLog);
+        second.setCombatLog(secondLog);
+
+        for (int keys : TestLevels.wanderingKeys(TICKS, SEED)) {
+            first.controlPlayer(keys);
+            second.controlPlayer(keys);
+            first.updateWorld(TestLevels.TICK_MS);
+            second.updateWorld(TestLevels.TICK_MS);
+        }
+        firstLog.close();
+        secondLog.close();
+
+        String firstRecords = format(directory.resolve("first.log"));
+        assertTrue(firstRecords.contains(" damage points on "), "Nothing was hurt");
+        assertEquals(firstRecords, format(directory.resolve("second.log")));
+    }
+
+    private static String format(Path logFile) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        CombatLogFormatter.format(logFile, new PrintStream(lines, true));
+        return lines.toString();
+    }
+}
@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks edits of level files are found and applied as if the edited level had been loaded.
+ */
+class LevelDiffTest {
+    private final static long SEED = 3;
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void sameEntriesHaveNoChanges() throws IOException {
+        LevelSnapshot level = LevelSnapshot.read(TestLevels.SHIPPED_LEVEL);
+        assertTrue(LevelDiff.between(level, level).isEmpty());
+    }
+
+    @Test
+    void compiledLevelHasSameEntries() throws IOException {
+        String compiled = directory.resolve("level0" + BinaryLevelReader.EXTENSION).toString();
+        LevelCompiler.compile(TestLevels.SHIPPED_LEVEL, compiled, true);
+        assertTrue(LevelDiff.between(LevelSnapshot.read(TestLevels.SHIPPED_LEVEL),
+                LevelSnapshot.read(compiled)).isEmpty());
+    }
+
+    @Test
+    void findsRemovedAndAddedEntries() throws IOException {
+        String edited = TestLevels.edit(TestLevels.SHIPPED_LEVEL, directory.resolve("edited.csv"),
+                "Tree,120,680", "Tree,130,690",
+                "Sinkhole,255,655", null,
+                "", "Wall,700,400");
+        LevelDiff diff = LevelDiff.between(LevelSnapshot.read(TestLevels.SHIPPED_LEVEL), LevelSnapshot.read(edited));
+
+        int tree = LevelSnapshot.typeNum("Tree"), sinkhole = LevelSnapshot.typeNum("Sinkhole");
+        int wall = LevelSnapshot.typeNum("Wall");
+        assertEquals(4, diff.size());
+        assertArrayEquals(new long[] {LevelSnapshot.pack(120, 680)}, diff.getRemoved(tree));
+        assertArrayEquals(new long[] {LevelSnapshot.pack(130, 690)}, diff.getAdded(tree));
+        assertArrayEquals(new long[] {LevelSnapshot.pack(255, 655)}, diff.getRemoved(sinkhole));
+        assertEquals(0, diff.getAdded(sinkhole).length);
+        assertArrayEquals(new long[] {LevelSnapshot.pack(700, 400)}, diff.getAdded(wall));
+    }
+
+    @Test
+    void appliedEditMatchesLoadedLevel() throws IOException {
+        String edited = TestLevels.edit(TestLevels.SHIPPED_LEVEL, directory.resolve("edited.csv"),
+                "Tree,120,680", "Tree,130,690",
+                "Tree,15,550", null,
+                "Sinkhole,930,250", "Sinkhole,900,280",
+                "Demon,300,200", "Demon,320,260",
+                "Demon,930,350", null,
+                "", "Demon,700,400",
+                "", "Wall,700,500");
+        World world = new World(0, TestLevels.SHIPPED_LEVEL, SEED);
+        world.applyLevelEdit(LevelDiff.between(LevelSnapshot.read(TestLevels.SHIPPED_LEVEL),
+                LevelSnapshot.read(edited)));
+
+        World loaded = new World(0, edited, SEED);
+        assertEquals(TestLevels.describeObjects(loaded), TestLevels.describeObjects(world));
+        assertEquals(loaded.getEnemies().size(), world.getEnemies().size());
+        assertEquals(loaded.getObstacles().size(), world.getObstacles().size());
+        assertEquals(loaded.getHazards().size(), world.getHazards().size());
+    }
+}
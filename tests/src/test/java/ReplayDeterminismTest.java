@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks a world given the same keys always ends up the same, whatever the number of threads updating it,
+ * and that recordings replay without diverging.
+ */
+class ReplayDeterminismTest {
+    private final static int TILES_PER_ROW = 8;
+    private final static int TICKS = 300;
+    private final static long WORLD_SEED = 12;
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void hashesDoNotDependOnThreadCount() throws IOException {
+        String level = TestLevels.tile(directory, TILES_PER_ROW);
+        int[] keys = TestLevels.wanderingKeys(TICKS, WORLD_SEED);
+
+        long[] sequential = hashes(level, keys, null);
+        assertTrue(EnemyUpdateTask.worthSplitting(new World(0, level, WORLD_SEED).getEnemies().size()),
+                "The level is too small to split the enemies across threads");
+        for (int threads : new int[] {2, 4}) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                assertArrayEquals(sequential, hashes(level, keys, pool), threads + " threads diverged");
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void recordingReplays() throws IOException {
+        InputRecording recording = new InputRecording();
+        World world = new World(0, TestLevels.SHIPPED_LEVEL, WORLD_SEED);
+        RecordedLevel recorded = recording.startLevel(world, TestLevels.TICK_MS);
+        for (int keys : TestLevels.wanderingKeys(TICKS, WORLD_SEED)) {
+            world.controlPlayer(keys);
+            world.updateWorld(TestLevels.TICK_MS);
+            recorded.record(world.getTickKeys(), world.stateHash());
+        }
+
+        Path file = directory.resolve("run.sdrp");
+        recording.write(file);
+        InputRecording read = InputRecording.read(file);
+        assertEquals(1, read.getLevels().size());
+        assertEquals(TICKS, read.getLevels().get(0).getTickCount());
+        assertTrue(HeadlessSimulation.replay(read));
+    }
+
+    private static long[] hashes(String level, int[] keys, ForkJoinPool pool) throws IOException {
+        World world = new World(0, level, WORLD_SEED);
+        world.setEnemyPool(pool);
+        long[] hashes = new long[keys.length];
+        for (int tick = 0; tick < keys.length; tick++) {
+            world.controlPlayer(keys[tick]);
+            world.updateWorld(TestLevels.TICK_MS);
+            hashes[tick] = world.stateHash();
+        }
+        return hashes;
+    }
+}
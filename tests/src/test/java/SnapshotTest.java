@@ -0,0 +1,95 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks a restored snapshot puts a world back exactly as it was.
+ */
+class SnapshotTest {
+    private final static int TICKS = 600;
+    private final static long SEED = 9;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rewoundWorldReplaysTheSame() throws IOException {
+        World world = new World(0, TestLevels.SHIPPED_LEVEL, SEED);
+        int[] keys = TestLevels.wanderingKeys(TICKS * 2, SEED);
+        run(world, keys, 0, TICKS);
+        ByteBuffer snapshot = world.snapshot();
+        long snapshotHash = world.stateHash();
+        long[] hashes = run(world, keys, TICKS, TICKS * 2);
+
+        world.restore(snapshot);
+        assertEquals(snapshotHash, world.stateHash());
+        assertArrayEquals(hashes, run(world, keys, TICKS, TICKS * 2));
+    }
+
+    @Test
+    void snapshotRestoresIntoAnotherWorld() throws IOException {
+        World world = new World(0, TestLevels.SHIPPED_LEVEL, SEED);
+        int[] keys = TestLevels.wanderingKeys(TICKS * 2, SEED);
+        run(world, keys, 0, TICKS);
+        ByteBuffer snapshot = world.snapshot();
+        long[] hashes = run(world, keys, TICKS, TICKS * 2);
+
+        World restored = new World(0, TestLevels.SHIPPED_LEVEL, SEED);
+        restored.restore(snapshot);
+        assertArrayEquals(hashes, run(restored, keys, TICKS, TICKS * 2));
+    }
+
+    @Test
+    void foreignSnapshotIsRejected() throws IOException {
+        World world = new World(0, TestLevels.SHIPPED_LEVEL, SEED);
+        World otherSeed = new World(0, TestLevels.SHIPPED_LEVEL, SEED + 1);
+        assertThrows(IllegalArgumentException.class, () -> otherSeed.restore(world.snapshot()));
+        assertThrows(IllegalArgumentException.class, () -> world.restore(ByteBuffer.allocate(64)));
+    }
+
+    @Test
+    void snapshotOfEditedWorldNeedsTheEditedObjects() throws IOException {
+        World world = new World(0, TestLevels.SHIPPED_LEVEL, SEED);
+        int[] keys = TestLevels.wanderingKeys(TICKS * 2, SEED);
+        run(world, keys, 0, TICKS);
+        ByteBuffer beforeEdit = world.snapshot();
+
+        String edited = TestLevels.edit(TestLevels.SHIPPED_LEVEL, directory.resolve("edited.csv"),
+                "", "Demon,700,400",
+                "", "Wall,700,500");
+        world.applyLevelEdit(LevelDiff.between(LevelSnapshot.read(TestLevels.SHIPPED_LEVEL),
+                LevelSnapshot.read(edited)));
+        ByteBuffer afterEdit = world.snapshot();
+        long[] hashes = run(world, keys, TICKS, TICKS * 2);
+
+        World fresh = new World(0, TestLevels.SHIPPED_LEVEL, SEED);
+        long freshHash = fresh.stateHash();
+        assertThrows(IllegalArgumentException.class, () -> fresh.restore(afterEdit.duplicate()));
+        assertEquals(freshHash, fresh.stateHash());
+
+        world.restore(afterEdit);
+        assertArrayEquals(hashes, run(world, keys, TICKS, TICKS * 2));
+        //Restoring from before the edit takes the objects it added back out
+        fresh.restore(beforeEdit.duplicate());
+        world.restore(beforeEdit);
+        assertEquals(fresh.getEnemies().size(), world.getEnemies().size());
+        assertEquals(fresh.getObstacles().size(), world.getObstacles().size());
+    }
+
+    private static long[] run(World world, int[] keys, int fromTick, int toTick) {
+        long[] hashes = new long[toTick - fromTick];
+        for (int tick = fromTick; tick < toTick; tick++) {
+            world.controlPlayer(keys[tick]);
+            world.updateWorld(TestLevels.TICK_MS);
+            hashes[tick - fromTick] = world.stateHash();
+        }
+        return hashes;
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Level files and inputs shared by the tests.
+ */
+final class TestLevels {
+    /**
+     * A level with one of the shipped layouts and every type of object.
+     */
+    final static String SHIPPED_LEVEL = "res/level1.csv";
+    /**
+     * The amount of time that passes for each update in ms.
+     */
+    final static double TICK_MS = 1000/60.0;
+
+    private final static int TILE_WIDTH = 1024;
+    private final static int TILE_HEIGHT = 768;
+    private final static int[] MOVES = {0, TickInput.UP, TickInput.DOWN, TickInput.LEFT, TickInput.RIGHT,
+            TickInput.DOWN | TickInput.RIGHT};
+    private final static int TICKS_PER_MOVE = 20;
+
+
+    private TestLevels() {}
+
+    /**
+     * Writes a larger level made of copies of the shipped level laid out in a square,
+     * with the player in the first copy and the corners around every copy.
+     * @param directory
+     * The directory the level is written to.
+     * @param tilesPerRow
+     * The number of copies along each side of the level.
+     * @return
+     * The path to the level file.
+     */
+    static String tile(Path directory, int tilesPerRow) throws IOException {
+        List<String> tiled = new ArrayList<>();
+        for (String line : Files.readAllLines(Path.of(SHIPPED_LEVEL))) {
+            String[] entry = line.split(",");
+            int x = Integer.parseInt(entry[1]), y = Integer.parseInt(entry[2]);
+            if (entry[0].equals(Player.PLAYER_NAME) || entry[0].equals("TopLeft")) {
+                tiled.add(line);
+            } else if (entry[0].equals("BottomRight")) {
+                tiled.add(entry[0] + "," + (x + (tilesPerRow - 1) * TILE_WIDTH) + "," +
+                        (y + (tilesPerRow - 1) * TILE_HEIGHT));
+            } else {
+                for (int tile = 0; tile < tilesPerRow * tilesPerRow; tile++)
+                    tiled.add(entry[0] + "," + (x + (tile % tilesPerRow) * TILE_WIDTH) + "," +
+                            (y + (tile / tilesPerRow) * TILE_HEIGHT));
+            }
+        }
+
+        Path filepath = directory.resolve("tiled" + tilesPerRow + ".csv");
+        Files.write(filepath, tiled);
+        return filepath.toString();
+    }
+
+    /**
+     * Copies a level file with some of its lines replaced.
+     * @param source
+     * The path to the level copied.
+     * @param target
+     * The path the copy is written to.
+     * @param replacements
+     * Pairs of a line of the source and the line it is replaced with, or null to drop it.
+     * @return
+     * The path to the copy.
+     */
+    static String edit(String source, Path target, String... replacements) throws IOException {
+        List<String> lines = new ArrayList<>(Files.readAllLines(Path.of(source)));
+        for (int i = 0; i < replacements.length; i += 2) {
+            int index = lines.indexOf(replacements[i]);
+            if (replacements[i + 1] == null)
+                lines.remove(index);
+            else if (index < 0)
+                lines.add(replacements[i + 1]);
+            else
+                lines.set(index, replacements[i + 1]);
+        }
+        Files.write(target, lines);
+        return target.toString();
+    }
+
+    /**
+     * Gives the keys of a player that wanders and attacks, the same for a seed.
+     * @param tickCount
+     * The number of updates keys are given for.
+     * @param seed
+     * The seed of the keys.
+     * @return
+     * The keys of each update, as TickInput bits.
+     */
+    static int[] wanderingKeys(int tickCount, long seed) {
+        Random random = new Random(seed);
+        int[] keys = new int[tickCount];
+        int move = 0;
+        for (int tick = 0; tick < tickCount; tick++) {
+            if (tick % TICKS_PER_MOVE == 0)
+                move = MOVES[random.nextInt(MOVES.length)];
+            keys[tick] = move | (random.nextInt(8) == 0 ? TickInput.ATTACK : 0);
+        }
+        return keys;
+    }
+
+    /**
+     * Describes every object in a world apart from the player by its kind and boundary,
+     * so two worlds can be compared whatever order their objects were created in.
+     * @param world
+     * The world described.
+     * @return
+     * The sorted descriptions.
+     */
+    static List<String> describeObjects(World world) {
+        BoundsStore store = world.getObjectBounds();
+        List<String> objects = new ArrayList<>();
+        for (int slot = 0; slot < store.size(); slot++) {
+            WorldObject object = store.getObject(slot);
+            if (store.getType(slot) == BoundsStore.REMOVED || object == world.getPlayer())
+                continue;
+            objects.add(object.getClass().getName() + Arrays.toString(new double[] {store.getLeftBound(slot),
+                    store.getTopBound(slot), store.getRightBound(slot), store.getBotBound(slot)}));
+        }
+        objects.sort(null);
+        return objects;
+    }
+}
@@ -0,0 +1,80 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the spatial index finds what a scan through every object finds.
+ */
+class UniformGridIndexTest {
+    private final static int WORLD_SIZE = 2000;
+    private final static int OBJECT_COUNT = 500;
+    private final static int QUERY_COUNT = 2000;
+    private final static int MAX_QUERY_SIZE = 300;
+    private final static long SEED = 7;
+
+    private final Random random = new Random(SEED);
+    private final BoundsStore store = new BoundsStore();
+    private final ArrayList<WorldObject> objects = new ArrayList<>();
+    private final SpatialIndex index = new UniformGridIndex(new Boundary(0, WORLD_SIZE, 0, WORLD_SIZE), store);
+
+
+    @Test
+    void queryFindsEveryOverlappingObject() {
+        addObjects();
+        checkQueries();
+    }
+
+    @Test
+    void queryFollowsMovedAndRemovedObjects() {
+        addObjects();
+        for (int round = 0; round < 5; round++) {
+            for (WorldObject object : objects) {
+                if (random.nextInt(4) == 0) {
+                    //Some objects leave the indexed area, which the index has to handle too
+                    object.translate(random.nextInt(400) - 200, random.nextInt(400) - 200);
+                    index.update(object);
+                }
+            }
+            for (int i = 0; i < 20; i++) {
+                WorldObject object = objects.remove(random.nextInt(objects.size()));
+                index.remove(object);
+                store.remove(object.getSlot());
+            }
+            checkQueries();
+        }
+    }
+
+    private void addObjects() {
+        for (int i = 0; i < OBJECT_COUNT; i++) {
+            WorldObject object = new Obstacle(random.nextInt(WORLD_SIZE), random.nextInt(WORLD_SIZE),
+                    random.nextBoolean(), store);
+            objects.add(object);
+            index.insert(object);
+        }
+        assertEquals(OBJECT_COUNT, ((UniformGridIndex) index).size());
+    }
+
+    private void checkQueries() {
+        ArrayList<WorldObject> results = new ArrayList<>();
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            double left = random.nextInt(WORLD_SIZE + 400) - 200, top = random.nextInt(WORLD_SIZE + 400) - 200;
+            double right = left + random.nextInt(MAX_QUERY_SIZE), bot = top + random.nextInt(MAX_QUERY_SIZE);
+            index.query(left, top, right, bot, results);
+
+            for (int j = 1; j < results.size(); j++)
+                assertTrue(results.get(j - 1).getSlot() < results.get(j).getSlot(),
+                        "Results are not in creation order without duplicates");
+            for (WorldObject object : results)
+                assertTrue(objects.contains(object), "A removed object was found");
+            for (WorldObject object : objects) {
+                if (object.getTopBound() <= bot && object.getBotBound() >= top &&
+                        object.getLeftBound() <= right && object.getRightBound() >= left)
+                    assertTrue(results.contains(object), "An overlapping object was missed");
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the worlds of a vectorized environment step the same whatever the number of threads stepping them.
+ */
+class VectorEnvironmentTest {
+    private final static int TILES_PER_ROW = 8;
+    private final static int WORLDS = 4;
+    private final static int STEPS = 300;
+    //Short episodes, so worlds are also built again with their next seed during the run
+    private final static int EPISODE_STEPS = 120;
+    private final static long SEED = 21;
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void buffersDoNotDependOnThreadCount() throws IOException {
+        String level = TestLevels.tile(directory, TILES_PER_ROW);
+        assertTrue(EnemyUpdateTask.worthSplitting(new World(0, level, SEED).getEnemies().size()),
+                "The level is too small to split the enemies across threads");
+
+        double[] sequential = trace(level, 1);
+        //3 threads split the worlds, 16 threads also split each world's enemies
+        for (int threads : new int[] {3, 16})
+            assertArrayEquals(sequential, trace(level, threads), threads + " threads diverged");
+    }
+
+    //Steps the worlds with the same keys and gives every observation, reward and end of episode in order
+    private static double[] trace(String level, int threads) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            VectorEnvironment environment = new VectorEnvironment(level, WORLDS, SEED, EPISODE_STEPS, pool);
+            int[][] keys = new int[WORLDS][];
+            for (int world = 0; world < WORLDS; world++)
+                keys[world] = TestLevels.wanderingKeys(STEPS, SEED + world);
+
+            int observationCount = environment.getObservations().length;
+            double[] trace = new double[STEPS * (observationCount + 2 * WORLDS)];
+            int position = 0;
+            for (int step = 0; step < STEPS; step++) {
+                for (int world = 0; world < WORLDS; world++)
+                    environment.getActions()[world] = keys[world][step];
+                environment.step();
+
+                System.arraycopy(environment.getObservations(), 0, trace, position, observationCount);
+                position += observationCount;
+                for (int world = 0; world < WORLDS; world++) {
+                    trace[position++] = environment.getRewards()[world];
+                    trace[position++] = environment.getDones()[world] ? 1 : 0;
+                }
+            }
+            assertTrue(environment.getEpisodes() > 0, "No episode ended");
+            return trace;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}